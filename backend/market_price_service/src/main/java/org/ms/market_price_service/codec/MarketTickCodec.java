@@ -0,0 +1,59 @@
+package org.ms.market_price_service.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-layout binary encoding of a market tick, little-endian, 68 bytes:
+ *
+ * <pre>
+ * offset  size  field
+ *      0     2  templateId       (uint16, always {@link #TEMPLATE_ID})
+ *      2     2  schemaVersion    (uint16, {@link #SCHEMA_VERSION})
+ *      4    16  instrument       (ASCII, zero padded)
+ *     20     8  price            (float64)
+ *     28     8  currentDayOpen   (float64)
+ *     36     8  currentDayHigh   (float64)
+ *     44     8  currentDayLow    (float64)
+ *     52     8  timestamp        (int64, epoch millis)
+ *     60     8  priceLastUpdate  (int64, epoch millis)
+ * </pre>
+ */
+public final class MarketTickCodec {
+
+    public static final int TEMPLATE_ID = 919;
+    public static final int SCHEMA_VERSION = 1;
+    public static final int INSTRUMENT_LENGTH = 16;
+    public static final int BLOCK_LENGTH = 68;
+
+    private MarketTickCodec() {
+    }
+
+    /**
+     * Encodes a tick into a new read-only buffer. The buffer is meant to be shared by every
+     * subscriber of the tick, each sending its own {@link ByteBuffer#duplicate()}.
+     */
+    public static ByteBuffer encode(String instrument, double price, double openDay, double highDay,
+            double lowDay, long timestampMs, long priceLastUpdateMs) {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putShort((short) TEMPLATE_ID);
+        buffer.putShort((short) SCHEMA_VERSION);
+
+        byte[] symbol = instrument.getBytes(StandardCharsets.US_ASCII);
+        int length = Math.min(symbol.length, INSTRUMENT_LENGTH);
+        buffer.put(symbol, 0, length);
+        for (int i = length; i < INSTRUMENT_LENGTH; i++) {
+            buffer.put((byte) 0);
+        }
+
+        buffer.putDouble(price);
+        buffer.putDouble(openDay);
+        buffer.putDouble(highDay);
+        buffer.putDouble(lowDay);
+        buffer.putLong(timestampMs);
+        buffer.putLong(priceLastUpdateMs);
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,30 @@
+package org.ms.market_price_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "market-data")
+public class MarketDataConfig {
+
+    // Publish each upstream tick as it arrives; when false only the heartbeat publishes
+    private boolean pushEnabled = true;
+
+    // Minimum gap between two publishes of the same instrument, 0 publishes every tick
+    private long throttleMs = 0;
+
+    // Instruments without a publish for this long are republished with their last known values
+    private long heartbeatMs = 1000;
+
+    // How often throttled ticks and heartbeats are checked
+    private long flushIntervalMs = 100;
+
+    // PUBSUB: fire-and-forget on the market_data channel.
+    // STREAM: XADD to streamKey, consumers read through groups and catch up after a restart
+    private String transport = "PUBSUB";
+    private String streamKey = "market_data_stream";
+    // Approximate MAXLEN trimming keeps the stream bounded
+    private long streamMaxLen = 100000;
+}
@@ -1,43 +1,202 @@
 package org.ms.market_price_service.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Set;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
+/**
+ * Market data fan-out. Clients get JSON text frames by default and opt into the fixed-layout
+ * binary frames of {@link org.ms.market_price_service.codec.MarketTickCodec} either by requesting
+ * the {@value #BINARY_PROTOCOL} subprotocol or by connecting with {@code ?format=binary}.
+ *
+ * <p>Sends run on the {@code ws-send} pool against a {@link ConcurrentWebSocketSessionDecorator}, so a
+ * slow peer only holds one send thread while further frames queue in its bounded buffer. Peers that
+ * exceed the send time limit, or the buffer limit under TERMINATE, are evicted. The pool's queue is
+ * bounded: when every thread is stuck on slow peers, further frames are dropped and counted.
+ */
 @Component
 @Slf4j
-public class MarketDataWebSocketHandler extends TextWebSocketHandler {
+public class MarketDataWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
 
-    private final Set<WebSocketSession> sessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    public static final String BINARY_PROTOCOL = "market.binary.v1";
+
+    private final WebSocketSessionConfig sessionConfig;
+    private final ThreadPoolTaskExecutor sendExecutor;
+    private final Counter evictions;
+    private final Counter dropped;
+    private final Timer sendLatency;
+
+    private final Map<String, ConcurrentWebSocketSessionDecorator> textSessions = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentWebSocketSessionDecorator> binarySessions = new ConcurrentHashMap<>();
+
+    public MarketDataWebSocketHandler(WebSocketSessionConfig sessionConfig,
+            @Qualifier("webSocketSendExecutor") ThreadPoolTaskExecutor sendExecutor, MeterRegistry meterRegistry) {
+        this.sessionConfig = sessionConfig;
+        this.sendExecutor = sendExecutor;
+        this.evictions = Counter.builder("market.ws.evictions")
+                .description("Sessions closed for exceeding the send time or buffer limit")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("market.ws.dropped")
+                .description("Frames dropped because the send queue was full")
+                .register(meterRegistry);
+        this.sendLatency = Timer.builder("market.tick.latency")
+                .description("Upstream tick receipt to publish")
+                .tag("sink", "websocket")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("market.ws.sessions", this, handler -> handler.textSessions.size() + handler.binarySessions.size())
+                .register(meterRegistry);
+        Gauge.builder("market.ws.buffered.bytes", this, MarketDataWebSocketHandler::bufferedBytes)
+                .description("Bytes queued across all session send buffers")
+                .register(meterRegistry);
+        Gauge.builder("market.ws.buffered.bytes.max", this, MarketDataWebSocketHandler::maxBufferedBytes)
+                .description("Largest send buffer of a single session")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(BINARY_PROTOCOL);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
-        log.info("New WebSocket connection: {}", session.getId());
+        boolean binary = wantsBinary(session);
+        ConcurrentWebSocketSessionDecorator decorated = new ConcurrentWebSocketSessionDecorator(session,
+                sessionConfig.getSendTimeLimitMs(), sessionConfig.getBufferSizeLimitBytes(),
+                sessionConfig.getOverflowStrategy());
+        (binary ? binarySessions : textSessions).put(session.getId(), decorated);
+        log.info("New WebSocket connection: {} ({})", session.getId(), binary ? "binary" : "json");
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session);
+        textSessions.remove(session.getId());
+        binarySessions.remove(session.getId());
         log.info("WebSocket connection closed: {}", session.getId());
     }
 
-    public void broadcast(String message) {
-        for (WebSocketSession session : sessions) {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(message));
+    public boolean hasTextSessions() {
+        return !textSessions.isEmpty();
+    }
+
+    public boolean hasBinarySessions() {
+        return !binarySessions.isEmpty();
+    }
+
+    /**
+     * @param receivedNanos {@link System#nanoTime()} of the upstream tick, or 0 when the frame is a
+     *                      heartbeat and should not be timed
+     */
+    public void broadcast(String message, long receivedNanos) {
+        // One frame per tick, shared by every JSON subscriber
+        TextMessage frame = new TextMessage(message);
+        for (ConcurrentWebSocketSessionDecorator session : textSessions.values()) {
+            submit(session, frame, receivedNanos);
+        }
+    }
+
+    public void broadcast(ByteBuffer payload, long receivedNanos) {
+        for (ConcurrentWebSocketSessionDecorator session : binarySessions.values()) {
+            // Duplicates share the encoded bytes but keep their own position
+            BinaryMessage frame = new BinaryMessage(payload.duplicate());
+            submit(session, frame, receivedNanos);
+        }
+    }
+
+    private void submit(WebSocketSession session, WebSocketMessage<?> frame, long receivedNanos) {
+        try {
+            sendExecutor.execute(() -> send(session, frame, receivedNanos));
+        } catch (TaskRejectedException e) {
+            // Market data is superseded by the next tick, so dropping beats blocking the feed
+            dropped.increment();
+        }
+    }
+
+    private void send(WebSocketSession session, WebSocketMessage<?> frame, long receivedNanos) {
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(frame);
+                if (receivedNanos != 0) {
+                    sendLatency.record(System.nanoTime() - receivedNanos, TimeUnit.NANOSECONDS);
                 }
-            } catch (IOException e) {
-                log.error("Error sending message to peer: {}", session.getId(), e);
             }
+        } catch (SessionLimitExceededException e) {
+            evict(session, e);
+        } catch (IOException e) {
+            log.error("Error sending message to peer: {}", session.getId(), e);
+        }
+    }
+
+    private void evict(WebSocketSession session, SessionLimitExceededException cause) {
+        boolean removed = textSessions.remove(session.getId()) != null
+                | binarySessions.remove(session.getId()) != null;
+        if (!removed) {
+            return;
+        }
+        evictions.increment();
+        log.warn("Evicting slow WebSocket consumer {}: {}", session.getId(), cause.getMessage());
+        try {
+            session.close(cause.getStatus());
+        } catch (IOException e) {
+            log.debug("Error closing evicted session {}", session.getId(), e);
+        }
+    }
+
+    private double bufferedBytes() {
+        long total = 0;
+        for (ConcurrentWebSocketSessionDecorator session : textSessions.values()) {
+            total += session.getBufferSize();
+        }
+        for (ConcurrentWebSocketSessionDecorator session : binarySessions.values()) {
+            total += session.getBufferSize();
+        }
+        return total;
+    }
+
+    private double maxBufferedBytes() {
+        long max = 0;
+        for (ConcurrentWebSocketSessionDecorator session : textSessions.values()) {
+            max = Math.max(max, session.getBufferSize());
+        }
+        for (ConcurrentWebSocketSessionDecorator session : binarySessions.values()) {
+            max = Math.max(max, session.getBufferSize());
+        }
+        return max;
+    }
+
+    private static boolean wantsBinary(WebSocketSession session) {
+        if (BINARY_PROTOCOL.equals(session.getAcceptedProtocol())) {
+            return true;
+        }
+        URI uri = session.getUri();
+        if (uri == null) {
+            return false;
         }
+        String format = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("format");
+        return "binary".equalsIgnoreCase(format);
     }
 }
@@ -0,0 +1,25 @@
+package org.ms.market_price_service.config;
+
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "market-data.feed")
+public class MarketFeedConfig {
+
+    // Which MarketFeedSource bean is active
+    private String source = "coindesk";
+    private String market = "binance";
+    private List<String> instruments = List.of("BTCUSD_PERP", "ETHUSD_PERP", "SOLUSD_PERP");
+
+    // Reconnect delay doubles from initial to max, with jitter
+    private long initialBackoffMs = 1000;
+    private long maxBackoffMs = 60000;
+
+    // An instrument without a tick for this long is stale; when all of them are, the feed is reconnected
+    private long staleAfterMs = 30000;
+    private long checkIntervalMs = 5000;
+}
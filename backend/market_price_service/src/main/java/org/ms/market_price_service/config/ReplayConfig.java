@@ -0,0 +1,20 @@
+package org.ms.market_price_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "market-data.replay")
+public class ReplayConfig {
+
+    // Recorder output to replay, files are played in name order
+    private String directory = "./market-data";
+    // 1 replays in real time, N at N times speed, 0 as fast as possible
+    private double speed = 1.0;
+    // Start over after the last file instead of going quiet
+    private boolean loop = false;
+    // Longer pauses in the recording, e.g. while the service was down, are shortened to this
+    private long maxGapMs = 5000;
+}
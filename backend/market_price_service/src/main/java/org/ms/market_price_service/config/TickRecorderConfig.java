@@ -0,0 +1,17 @@
+package org.ms.market_price_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "market-data.recorder")
+public class TickRecorderConfig {
+
+    // Appends every upstream tick to daily files under directory
+    private boolean enabled = false;
+    private String directory = "./market-data";
+    // Mapped size of one file; a full file continues in the next segment of the same day
+    private int segmentSizeMb = 64;
+}
@@ -0,0 +1,39 @@
+package org.ms.market_price_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "websocket.session")
+public class WebSocketSessionConfig {
+
+    // A session whose current send has been blocked this long is evicted
+    private int sendTimeLimitMs = 5000;
+
+    // Bytes buffered per session while a send is in progress
+    private int bufferSizeLimitBytes = 512 * 1024;
+
+    // DROP discards the oldest buffered frames, TERMINATE evicts the session
+    private OverflowStrategy overflowStrategy = OverflowStrategy.DROP;
+
+    private int sendPoolSize = 8;
+
+    // Sends waiting for a ws-send thread; past this a frame is dropped rather than queued without bound
+    private int sendQueueCapacity = 16384;
+
+    @Bean
+    public ThreadPoolTaskExecutor webSocketSendExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(sendPoolSize);
+        executor.setMaxPoolSize(sendPoolSize);
+        executor.setQueueCapacity(sendQueueCapacity);
+        executor.setThreadNamePrefix("ws-send-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,117 @@
+package org.ms.market_price_service.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latest market data per instrument. Every instrument holds an immutable {@link Snapshot} behind an
+ * {@link AtomicReference}; writers replace it with compare-and-set, so readers always see a complete
+ * price/OHLC set and no instrument ever blocks another.
+ */
+@Component
+public class MarketCache {
+
+    /**
+     * @param pendingSinceNanos {@link System#nanoTime()} of the oldest tick not yet published, 0 when
+     *                          everything has been published
+     * @param lastTickMs        epoch millis of the last upstream tick, 0 while the price is still
+     *                          the seeded default
+     * @param stale             the feed reported no tick for the instrument lately, cleared by the next one
+     */
+    public record Snapshot(String symbol, double price, double openDay, double highDay, double lowDay,
+            long pendingSinceNanos, long lastPublishedMs, long lastTickMs, boolean stale) {
+
+        public boolean pending() {
+            return pendingSinceNanos != 0;
+        }
+    }
+
+    private final Map<String, AtomicReference<Snapshot>> instruments = new ConcurrentHashMap<>();
+
+    public void seed(String symbol, double price) {
+        instruments.putIfAbsent(symbol,
+                new AtomicReference<>(new Snapshot(symbol, price, price, price, price, 0, 0, 0, false)));
+    }
+
+    /**
+     * Applies an upstream tick. Day fields passed as {@link Double#NaN} keep their previous value; a
+     * first tick without them starts the day at the tick price.
+     */
+    public Snapshot applyTick(String symbol, double price, double openDay, double highDay, double lowDay,
+            long receivedNanos) {
+        AtomicReference<Snapshot> ref = instruments.computeIfAbsent(symbol,
+                k -> new AtomicReference<>(new Snapshot(symbol, price, price, price, price, 0, 0, 0, false)));
+        long tickMs = System.currentTimeMillis();
+        while (true) {
+            Snapshot current = ref.get();
+            Snapshot next = new Snapshot(symbol, price,
+                    Double.isNaN(openDay) ? current.openDay() : openDay,
+                    Double.isNaN(highDay) ? current.highDay() : highDay,
+                    Double.isNaN(lowDay) ? current.lowDay() : lowDay,
+                    current.pending() ? current.pendingSinceNanos() : receivedNanos,
+                    current.lastPublishedMs(), tickMs, false);
+            if (ref.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    public void markStale(String symbol) {
+        AtomicReference<Snapshot> ref = instruments.get(symbol);
+        if (ref == null) {
+            return;
+        }
+        while (true) {
+            Snapshot current = ref.get();
+            if (current.stale()) {
+                return;
+            }
+            Snapshot next = new Snapshot(symbol, current.price(), current.openDay(), current.highDay(),
+                    current.lowDay(), current.pendingSinceNanos(), current.lastPublishedMs(), current.lastTickMs(),
+                    true);
+            if (ref.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Marks the instrument as published at {@code nowMs} if {@code shouldPublish} accepts its current
+     * snapshot. Returns the snapshot that was claimed, or null when it was not due or another thread
+     * claimed it first.
+     */
+    public Snapshot claim(String symbol, long nowMs, Predicate<Snapshot> shouldPublish) {
+        AtomicReference<Snapshot> ref = instruments.get(symbol);
+        if (ref == null) {
+            return null;
+        }
+        while (true) {
+            Snapshot current = ref.get();
+            if (!shouldPublish.test(current)) {
+                return null;
+            }
+            Snapshot next = new Snapshot(symbol, current.price(), current.openDay(), current.highDay(),
+                    current.lowDay(), 0, nowMs, current.lastTickMs(), current.stale());
+            if (ref.compareAndSet(current, next)) {
+                return current;
+            }
+        }
+    }
+
+    public Snapshot get(String symbol) {
+        AtomicReference<Snapshot> ref = instruments.get(symbol);
+        return ref == null ? null : ref.get();
+    }
+
+    public void forEach(BiConsumer<String, Snapshot> action) {
+        instruments.forEach((symbol, ref) -> action.accept(symbol, ref.get()));
+    }
+
+    public int size() {
+        return instruments.size();
+    }
+}
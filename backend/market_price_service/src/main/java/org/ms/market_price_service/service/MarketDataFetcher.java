@@ -1,169 +1,120 @@
 package org.ms.market_price_service.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.ms.market_price_service.codec.MarketTickCodec;
+import org.ms.market_price_service.config.MarketDataConfig;
 import org.ms.market_price_service.config.MarketDataWebSocketHandler;
-import org.springframework.beans.factory.annotation.Value;
+import org.ms.market_price_service.service.feed.MarketFeedListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.socket.TextMessage;
-import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.client.WebSocketClient;
-import org.springframework.web.socket.client.standard.StandardWebSocketClient;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class MarketDataFetcher {
+public class MarketDataFetcher implements MarketFeedListener {
 
     private final RedisPublisher redisPublisher;
     private final MarketDataWebSocketHandler webSocketHandler;
+    private final MarketDataConfig config;
+    private final MeterRegistry meterRegistry;
+    private final MarketCache marketCache;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // Store latest data for each instrument
-    private final Map<String, InstrumentData> marketCache = new HashMap<>();
-
-    @Value("${coindesk.ws-url}")
-    private String wsUrl;
-
-    @Value("${coindesk.api.key}")
-    private String apiKey;
-
-    // Simple DTO to hold market data
-    private static class InstrumentData {
-        double price;
-        double openDay;
-        double highDay;
-        double lowDay;
-
-        InstrumentData(double price, double openDay, double highDay, double lowDay) {
-            this.price = price;
-            this.openDay = openDay;
-            this.highDay = highDay;
-            this.lowDay = lowDay;
-        }
-    }
+    private Timer redisLatency;
 
     @PostConstruct
     public void init() {
+        redisLatency = Timer.builder("market.tick.latency")
+                .description("Upstream tick receipt to publish")
+                .tag("sink", "redis")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
         // Initialize with default values if needed, or leave empty to fill on first
         // tick
-        marketCache.put("BTCUSD_PERP", new InstrumentData(65000.00, 65000.00, 65000.00, 65000.00));
-        marketCache.put("ETHUSD_PERP", new InstrumentData(3500.00, 3500.00, 3500.00, 3500.00));
-        marketCache.put("SOLUSD_PERP", new InstrumentData(145.00, 145.00, 145.00, 145.00));
-
-        connectToCoinDesk();
+        marketCache.seed("BTCUSD_PERP", 65000.00);
+        marketCache.seed("ETHUSD_PERP", 3500.00);
+        marketCache.seed("SOLUSD_PERP", 145.00);
     }
 
-    public void connectToCoinDesk() {
-        // Connect in a separate thread to avoid blocking startup if it takes time
-        new Thread(() -> {
-            try {
-                WebSocketClient client = new StandardWebSocketClient();
-                String url = wsUrl + "?api_key=" + apiKey;
-                log.info("Connecting to CoinDesk Data Streamer...");
-                client.execute(new CoinDeskHandler(), url).get();
-            } catch (InterruptedException | ExecutionException e) {
-                log.error("Failed to connect to CoinDesk WebSocket: {}", e.getMessage());
+    /**
+     * Publishes ticks held back by the throttle and republishes idle instruments as a heartbeat. Stale
+     * instruments get no heartbeat, so subscribers see the feed stop instead of a price that looks live.
+     */
+    @Scheduled(fixedDelayString = "${market-data.flush-interval-ms:100}")
+    public void flush() {
+        long nowMs = System.currentTimeMillis();
+        marketCache.forEach((symbol, snapshot) -> {
+            MarketCache.Snapshot claimed = marketCache.claim(symbol, nowMs, current -> {
+                long sinceLastMs = nowMs - current.lastPublishedMs();
+                return (current.pending() && config.isPushEnabled() && sinceLastMs >= config.getThrottleMs())
+                        || (!current.stale() && sinceLastMs >= config.getHeartbeatMs());
+            });
+            if (claimed != null) {
+                publishUpdate(claimed, nowMs);
             }
-        }).start();
+        });
+    }
+
+    @Override
+    public void onTick(String symbol, double price, double openDay, double highDay, double lowDay,
+            long receivedNanos) {
+        marketCache.applyTick(symbol, price, openDay, highDay, lowDay, receivedNanos);
+        if (!config.isPushEnabled()) {
+            return;
+        }
+        long nowMs = System.currentTimeMillis();
+        MarketCache.Snapshot claimed = marketCache.claim(symbol, nowMs,
+                current -> current.pending() && nowMs - current.lastPublishedMs() >= config.getThrottleMs());
+        if (claimed != null) {
+            publishUpdate(claimed, nowMs);
+        }
     }
 
-    @Scheduled(fixedRate = 1000) // Run every 1 second
-    public void fetchAndBroadcast() {
-        // Broadcast the latest known prices for all instruments in cache
-        marketCache.forEach(this::publishUpdate);
+    @Override
+    public void onStale(String symbol) {
+        marketCache.markStale(symbol);
     }
 
-    private void publishUpdate(String symbol, InstrumentData data) {
+    private void publishUpdate(MarketCache.Snapshot snapshot, long nowMs) {
         Map<String, Object> message = new HashMap<>();
         message.put("TYPE", "919");
-        message.put("INSTRUMENT", symbol);
-        message.put("PRICE", data.price);
-        message.put("CURRENT_DAY_OPEN", data.openDay);
-        message.put("CURRENT_DAY_HIGH", data.highDay);
-        message.put("CURRENT_DAY_LOW", data.lowDay);
-        message.put("TIMESTAMP", System.currentTimeMillis() / 1000);
-        message.put("PRICE_LAST_UPDATE_TS", System.currentTimeMillis() / 1000);
-
-        try {
-            String jsonMessage = objectMapper.writeValueAsString(message);
-
-            // 1. Publish to Redis (for Backend)
-            redisPublisher.publish(message);
-
-            // 2. Broadcast to WebSocket (for Frontend)
-            webSocketHandler.broadcast(jsonMessage);
-
-            // log.info("Broadcasted: {}", jsonMessage);
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing market data", e);
+        message.put("INSTRUMENT", snapshot.symbol());
+        message.put("PRICE", snapshot.price());
+        message.put("CURRENT_DAY_OPEN", snapshot.openDay());
+        message.put("CURRENT_DAY_HIGH", snapshot.highDay());
+        message.put("CURRENT_DAY_LOW", snapshot.lowDay());
+        message.put("TIMESTAMP", nowMs / 1000);
+        // Heartbeats keep the time of the tick they repeat, so consumers can tell a dead feed from a quiet one
+        message.put("PRICE_LAST_UPDATE_TS", snapshot.lastTickMs() / 1000);
+
+        // 1. Publish to Redis (for Backend)
+        redisPublisher.publish(message);
+        // Heartbeats republish old values, only fresh ticks carry a receipt time
+        if (snapshot.pendingSinceNanos() != 0) {
+            redisLatency.record(System.nanoTime() - snapshot.pendingSinceNanos(), TimeUnit.NANOSECONDS);
         }
-    }
 
-    private class CoinDeskHandler extends TextWebSocketHandler {
-        @Override
-        public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-            log.info("Connected to CoinDesk Data Streamer");
-            // Subscription message for Futures V1 Latest Tick
-            // Added "CURRENT_DAY" to groups to get daily stats
-            String subscription = "{"
-                    + "  \"action\": \"SUBSCRIBE\","
-                    + "  \"type\": \"futures_v1_latest_tick\","
-                    + "  \"groups\": [\"VALUE\", \"CURRENT_DAY\"],"
-                    + "  \"market\": \"binance\","
-                    + "  \"instruments\": [\"BTCUSD_PERP\", \"ETHUSD_PERP\", \"SOLUSD_PERP\"]"
-                    + "}";
-            session.sendMessage(new TextMessage(subscription));
+        // 2. Broadcast to WebSocket (for Frontend), each format serialized once per tick
+        if (webSocketHandler.hasBinarySessions()) {
+            webSocketHandler.broadcast(MarketTickCodec.encode(snapshot.symbol(), snapshot.price(), snapshot.openDay(),
+                    snapshot.highDay(), snapshot.lowDay(), nowMs, snapshot.lastTickMs()), snapshot.pendingSinceNanos());
         }
-
-        @Override
-        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        if (webSocketHandler.hasTextSessions()) {
             try {
-                JsonNode root = objectMapper.readTree(message.getPayload());
-                // Parse the unmapped tick data
-                if (root.has("PRICE") && root.has("INSTRUMENT")) {
-                    String instrument = root.get("INSTRUMENT").asText();
-                    double price = root.get("PRICE").asDouble();
-
-                    // Fetch existing or create new data object
-                    // We use compute to update efficiently
-                    marketCache.compute(instrument, (k, v) -> {
-                        if (v == null) {
-                            // If first tick, initialize everything with current price if fields missing
-                            v = new InstrumentData(price, price, price, price);
-                        }
-
-                        v.price = price;
-
-                        if (root.has("CURRENT_DAY_OPEN")) {
-                            v.openDay = root.get("CURRENT_DAY_OPEN").asDouble();
-                        }
-                        if (root.has("CURRENT_DAY_HIGH")) {
-                            v.highDay = root.get("CURRENT_DAY_HIGH").asDouble();
-                        }
-                        if (root.has("CURRENT_DAY_LOW")) {
-                            v.lowDay = root.get("CURRENT_DAY_LOW").asDouble();
-                        }
-                        return v;
-                    });
-                }
-            } catch (Exception e) {
-                log.error("Error parsing CoinDesk message", e);
+                webSocketHandler.broadcast(objectMapper.writeValueAsString(message), snapshot.pendingSinceNanos());
+            } catch (JsonProcessingException e) {
+                log.error("Error serializing market data", e);
             }
         }
-
-        @Override
-        public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
-            log.error("CoinDesk WebSocket transport error", exception);
-        }
     }
-}
\ No newline at end of file
+}
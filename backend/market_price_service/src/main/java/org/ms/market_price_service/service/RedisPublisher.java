@@ -1,7 +1,15 @@
 package org.ms.market_price_service.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.ms.market_price_service.config.MarketDataConfig;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.stereotype.Service;
@@ -13,12 +21,29 @@ public class RedisPublisher {
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final ChannelTopic marketDataTopic;
+    private final MarketDataConfig config;
 
-    public void publish(Object message) {
+    public void publish(Map<String, Object> message) {
         try {
-            redisTemplate.convertAndSend(marketDataTopic.getTopic(), message);
+            if ("STREAM".equalsIgnoreCase(config.getTransport())) {
+                append(message);
+            } else {
+                redisTemplate.convertAndSend(marketDataTopic.getTopic(), message);
+            }
         } catch (Exception e) {
             log.error("Failed to publish to Redis (Check connection): {}", e.getMessage());
         }
     }
+
+    // Flat UTF-8 field/value pairs, no JSON or type information
+    private void append(Map<String, Object> message) {
+        Map<byte[], byte[]> fields = new HashMap<>(message.size() * 2);
+        message.forEach((field, value) -> fields.put(field.getBytes(StandardCharsets.UTF_8),
+                String.valueOf(value).getBytes(StandardCharsets.UTF_8)));
+        MapRecord<byte[], byte[], byte[]> record = StreamRecords.newRecord()
+                .in(config.getStreamKey().getBytes(StandardCharsets.UTF_8))
+                .ofMap(fields);
+        XAddOptions options = XAddOptions.maxlen(config.getStreamMaxLen()).approximateTrimming(true);
+        redisTemplate.execute((RedisCallback<Object>) connection -> connection.streamCommands().xAdd(record, options));
+    }
 }
@@ -0,0 +1,128 @@
+package org.ms.market_price_service.service.feed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.market_price_service.config.MarketFeedConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "market-data.feed.source", havingValue = "coindesk", matchIfMissing = true)
+public class CoinDeskFeedSource implements MarketFeedSource {
+
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+
+    private final MarketFeedConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebSocketClient client = new StandardWebSocketClient();
+
+    @Value("${coindesk.ws-url}")
+    private String wsUrl;
+
+    @Value("${coindesk.api.key}")
+    private String apiKey;
+
+    private volatile WebSocketSession session;
+
+    public CoinDeskFeedSource(MarketFeedConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String name() {
+        return "coindesk";
+    }
+
+    @Override
+    public void connect(List<String> instruments, MarketFeedListener listener) throws Exception {
+        String url = wsUrl + "?api_key=" + apiKey;
+        log.info("Connecting to CoinDesk Data Streamer...");
+        session = client.execute(new CoinDeskHandler(instruments, listener), url)
+                .get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void disconnect() {
+        WebSocketSession current = session;
+        session = null;
+        if (current != null && current.isOpen()) {
+            try {
+                current.close(CloseStatus.GOING_AWAY);
+            } catch (IOException e) {
+                log.debug("Error closing CoinDesk session", e);
+            }
+        }
+    }
+
+    private class CoinDeskHandler extends TextWebSocketHandler {
+
+        private final List<String> instruments;
+        private final MarketFeedListener listener;
+
+        CoinDeskHandler(List<String> instruments, MarketFeedListener listener) {
+            this.instruments = instruments;
+            this.listener = listener;
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+            log.info("Connected to CoinDesk Data Streamer");
+            // Subscription message for Futures V1 Latest Tick
+            // Added "CURRENT_DAY" to groups to get daily stats
+            String subscription = "{"
+                    + "  \"action\": \"SUBSCRIBE\","
+                    + "  \"type\": \"futures_v1_latest_tick\","
+                    + "  \"groups\": [\"VALUE\", \"CURRENT_DAY\"],"
+                    + "  \"market\": \"" + config.getMarket() + "\","
+                    + "  \"instruments\": " + objectMapper.writeValueAsString(instruments)
+                    + "}";
+            session.sendMessage(new TextMessage(subscription));
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            try {
+                JsonNode root = objectMapper.readTree(message.getPayload());
+                // Parse the unmapped tick data
+                if (root.has("PRICE") && root.has("INSTRUMENT")) {
+                    long receivedNanos = System.nanoTime();
+                    listener.onTick(root.get("INSTRUMENT").asText(), root.get("PRICE").asDouble(),
+                            doubleOrNaN(root, "CURRENT_DAY_OPEN"),
+                            doubleOrNaN(root, "CURRENT_DAY_HIGH"),
+                            doubleOrNaN(root, "CURRENT_DAY_LOW"),
+                            receivedNanos);
+                }
+            } catch (Exception e) {
+                log.error("Error parsing CoinDesk message", e);
+            }
+        }
+
+        private static double doubleOrNaN(JsonNode root, String field) {
+            return root.has(field) ? root.get(field).asDouble() : Double.NaN;
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+            log.error("CoinDesk WebSocket transport error", exception);
+            listener.onClosed(exception);
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+            log.warn("CoinDesk WebSocket closed: {}", status);
+            listener.onClosed(null);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.ms.market_price_service.service.feed;
+
+/**
+ * Receives ticks from a {@link MarketFeedSource}.
+ */
+public interface MarketFeedListener {
+
+    /**
+     * Day fields the upstream did not send are {@link Double#NaN}.
+     *
+     * @param receivedNanos {@link System#nanoTime()} when the tick was received
+     */
+    void onTick(String instrument, double price, double openDay, double highDay, double lowDay, long receivedNanos);
+
+    /**
+     * No tick for {@code instrument} within {@code stale-after-ms}; its next {@link #onTick} means it resumed.
+     */
+    default void onStale(String instrument) {
+    }
+
+    /**
+     * The connection ended, either closed by the peer or after a transport error (then {@code cause} is set).
+     */
+    default void onClosed(Throwable cause) {
+    }
+}
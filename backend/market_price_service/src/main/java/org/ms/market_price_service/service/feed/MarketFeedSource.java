@@ -0,0 +1,26 @@
+package org.ms.market_price_service.service.feed;
+
+import java.util.List;
+
+/**
+ * An upstream of market ticks, connected and reconnected by {@link MarketFeedSupervisor}.
+ */
+public interface MarketFeedSource {
+
+    String name();
+
+    /**
+     * Connects and subscribes to {@code instruments}, returning once the connection is established.
+     * Ticks and the eventual close are reported to {@code listener}.
+     */
+    void connect(List<String> instruments, MarketFeedListener listener) throws Exception;
+
+    void disconnect();
+
+    /**
+     * True once a finite source has delivered everything, so its silence is not mistaken for a dead feed.
+     */
+    default boolean isExhausted() {
+        return false;
+    }
+}
@@ -0,0 +1,204 @@
+package org.ms.market_price_service.service.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.market_price_service.config.MarketFeedConfig;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link MarketFeedSource} connected. Failed connects and dropped sessions are retried with
+ * jittered exponential backoff, and a feed that stays connected but stops ticking for
+ * {@code stale-after-ms} is torn down and reconnected. Instruments that stop ticking are reported to
+ * the downstream listeners through {@link MarketFeedListener#onStale}.
+ *
+ * <p>Connects, reconnects and staleness checks all run on the single {@code market-feed} thread. Every
+ * connection attempt gets a new generation, so ticks and close callbacks from a session that was
+ * already replaced are ignored.
+ */
+@Component
+@Slf4j
+public class MarketFeedSupervisor {
+
+    private final MarketFeedConfig config;
+    private final MarketFeedSource source;
+    private final List<MarketFeedListener> downstream;
+    private final MeterRegistry meterRegistry;
+    private final Counter reconnects;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "market-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, AtomicLong> lastTickMs = new ConcurrentHashMap<>();
+    private final Set<String> staleInstruments = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicInteger connected = new AtomicInteger();
+
+    private volatile boolean running;
+    private volatile long lastAnyTickMs;
+    // Only touched on the market-feed thread
+    private int failedAttempts;
+
+    public MarketFeedSupervisor(MarketFeedConfig config, MarketFeedSource source,
+            List<MarketFeedListener> downstream, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.source = source;
+        this.downstream = downstream;
+        this.meterRegistry = meterRegistry;
+        this.reconnects = Counter.builder("market.feed.reconnects")
+                .tag("source", source.name())
+                .register(meterRegistry);
+        Gauge.builder("market.feed.connected", connected, AtomicInteger::get)
+                .tag("source", source.name())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        long nowMs = System.currentTimeMillis();
+        lastAnyTickMs = nowMs;
+        // Configured instruments age from startup, so one that never ticks still shows up as stale
+        config.getInstruments().forEach(instrument -> tickClock(instrument).set(nowMs));
+        executor.execute(this::connect);
+        executor.scheduleWithFixedDelay(this::checkStaleness, config.getCheckIntervalMs(),
+                config.getCheckIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+        source.disconnect();
+    }
+
+    public boolean isConnected() {
+        return connected.get() == 1;
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        long session = generation.incrementAndGet();
+        try {
+            source.connect(config.getInstruments(), new SessionListener(session));
+            failedAttempts = 0;
+            lastAnyTickMs = System.currentTimeMillis();
+            connected.set(1);
+            log.info("Market feed {} connected", source.name());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Market feed {} connect failed: {}", source.name(), e.getMessage());
+            scheduleReconnect();
+        }
+    }
+
+    private void scheduleReconnect() {
+        connected.set(0);
+        if (!running) {
+            return;
+        }
+        long delayMs = backoffMs(failedAttempts++);
+        reconnects.increment();
+        log.info("Reconnecting market feed {} in {} ms", source.name(), delayMs);
+        executor.schedule(this::connect, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Full jitter on the upper half, so instances that dropped together do not reconnect together
+    long backoffMs(int attempt) {
+        long ceiling = Math.min(config.getMaxBackoffMs(), config.getInitialBackoffMs() << Math.min(attempt, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private void closed(long session, Throwable cause) {
+        if (session != generation.get()) {
+            return;
+        }
+        generation.incrementAndGet();
+        log.warn("Market feed {} disconnected{}", source.name(), cause == null ? "" : ": " + cause.getMessage());
+        scheduleReconnect();
+    }
+
+    private void checkStaleness() {
+        long nowMs = System.currentTimeMillis();
+        lastTickMs.forEach((instrument, last) -> {
+            if (nowMs - last.get() > config.getStaleAfterMs() && staleInstruments.add(instrument)) {
+                log.warn("No tick for {} in {} ms", instrument, nowMs - last.get());
+                for (MarketFeedListener listener : downstream) {
+                    listener.onStale(instrument);
+                }
+            }
+        });
+
+        if (isConnected() && !source.isExhausted() && nowMs - lastAnyTickMs > config.getStaleAfterMs()) {
+            log.warn("Market feed {} silent for {} ms, reconnecting", source.name(), nowMs - lastAnyTickMs);
+            generation.incrementAndGet();
+            source.disconnect();
+            scheduleReconnect();
+        }
+    }
+
+    private AtomicLong tickClock(String instrument) {
+        return lastTickMs.computeIfAbsent(instrument, key -> {
+            AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+            Gauge.builder("market.feed.tick.age", clock, last -> System.currentTimeMillis() - last.get())
+                    .description("Milliseconds since the last upstream tick")
+                    .tag("instrument", key)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            return clock;
+        });
+    }
+
+    private class SessionListener implements MarketFeedListener {
+
+        private final long session;
+
+        SessionListener(long session) {
+            this.session = session;
+        }
+
+        @Override
+        public void onTick(String instrument, double price, double openDay, double highDay, double lowDay,
+                long receivedNanos) {
+            // A replaced session may still be flushing buffered ticks, they must not reach downstream
+            if (session != generation.get()) {
+                return;
+            }
+            long nowMs = System.currentTimeMillis();
+            lastAnyTickMs = nowMs;
+            tickClock(instrument).set(nowMs);
+            if (staleInstruments.remove(instrument)) {
+                log.info("Ticks for {} resumed", instrument);
+            }
+            for (MarketFeedListener listener : downstream) {
+                listener.onTick(instrument, price, openDay, highDay, lowDay, receivedNanos);
+            }
+        }
+
+        @Override
+        public void onClosed(Throwable cause) {
+            if (running) {
+                executor.execute(() -> closed(session, cause));
+            }
+        }
+    }
+}
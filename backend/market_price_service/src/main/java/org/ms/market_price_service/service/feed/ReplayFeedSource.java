@@ -0,0 +1,175 @@
+package org.ms.market_price_service.service.feed;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.market_price_service.config.ReplayConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plays {@link TickRecorder} files back through the normal feed pipeline, paced by the recorded receipt
+ * times at the configured speed. Only the subscribed instruments are delivered.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "market-data.feed.source", havingValue = "replay")
+public class ReplayFeedSource implements MarketFeedSource {
+
+    private final ReplayConfig config;
+
+    private volatile Thread player;
+    private volatile boolean exhausted;
+
+    public ReplayFeedSource(ReplayConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public String name() {
+        return "replay";
+    }
+
+    @Override
+    public synchronized void connect(List<String> instruments, MarketFeedListener listener) throws Exception {
+        disconnect();
+        List<Path> files = recordings();
+        if (files.isEmpty()) {
+            throw new IllegalStateException("No recordings in " + config.getDirectory());
+        }
+        exhausted = false;
+        Set<String> subscribed = Set.copyOf(instruments);
+        Thread thread = new Thread(() -> play(files, subscribed, listener), "market-replay");
+        thread.setDaemon(true);
+        player = thread;
+        thread.start();
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        Thread thread = player;
+        player = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    private List<Path> recordings() throws IOException {
+        try (Stream<Path> paths = Files.list(Path.of(config.getDirectory()))) {
+            return paths.filter(path -> path.getFileName().toString().matches("ticks-.*\\.bin"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void play(List<Path> files, Set<String> subscribed, MarketFeedListener listener) {
+        log.info("Replaying {} recording(s) from {} at speed {}", files.size(), config.getDirectory(),
+                config.getSpeed() > 0 ? config.getSpeed() + "x" : "max");
+        try {
+            do {
+                Clock clock = new Clock();
+                for (Path file : files) {
+                    if (!playFile(file, subscribed, listener, clock)) {
+                        return;
+                    }
+                }
+            } while (config.isLoop());
+            exhausted = true;
+            log.info("Replay finished");
+        } catch (IOException e) {
+            log.error("Replay failed: {}", e.getMessage());
+            listener.onClosed(e);
+        }
+    }
+
+    // Returns false when the replay was stopped
+    private boolean playFile(Path file, Set<String> subscribed, MarketFeedListener listener, Clock clock)
+            throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] symbol = new byte[255];
+        while (buffer.remaining() >= TickRecorder.LENGTH_BYTES) {
+            int length = buffer.getInt();
+            if (length == 0) {
+                break;
+            }
+            int next = buffer.position() + length;
+            long epochNanos = buffer.getLong();
+            double price = buffer.getDouble();
+            double openDay = buffer.getDouble();
+            double highDay = buffer.getDouble();
+            double lowDay = buffer.getDouble();
+            int symbolLength = Byte.toUnsignedInt(buffer.get());
+            buffer.get(symbol, 0, symbolLength);
+            buffer.position(next);
+
+            String instrument = new String(symbol, 0, symbolLength, StandardCharsets.US_ASCII);
+            if (!subscribed.contains(instrument)) {
+                continue;
+            }
+            if (!clock.waitFor(epochNanos)) {
+                return false;
+            }
+            listener.onTick(instrument, price, openDay, highDay, lowDay, System.nanoTime());
+        }
+        return true;
+    }
+
+    /**
+     * Maps recorded receipt times onto this run's nanoTime, scaled by speed and with long gaps shortened.
+     */
+    private final class Clock {
+
+        private final long maxGapNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxGapMs());
+        private long lastRecordedNanos = Long.MIN_VALUE;
+        private long dueNanos = System.nanoTime();
+
+        boolean waitFor(long recordedNanos) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            if (config.getSpeed() <= 0) {
+                return true;
+            }
+            if (lastRecordedNanos != Long.MIN_VALUE) {
+                long gap = Math.max(0, Math.min(recordedNanos - lastRecordedNanos, maxGapNanos));
+                dueNanos += (long) (gap / config.getSpeed());
+            }
+            lastRecordedNanos = recordedNanos;
+
+            long waitNanos;
+            while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.ms.market_price_service.service.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.market_price_service.config.TickRecorderConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends every upstream tick to memory-mapped files, one series per UTC day named
+ * {@code ticks-yyyy-MM-dd-NNNN.bin}. A restart or a full segment continues in the next segment number,
+ * so a file is never reopened for writing.
+ *
+ * <p>Records are little-endian and length prefixed:
+ *
+ * <pre>
+ * int32    payload length (0 marks the end of the written part of a file)
+ * int64    epoch nanos of receipt
+ * float64  price, day open, day high, day low (NaN when upstream did not send it)
+ * uint8    instrument length, followed by the ASCII instrument
+ * </pre>
+ *
+ * The length is written after the payload, so a reader never sees a half-written record.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "market-data.recorder.enabled", havingValue = "true")
+public class TickRecorder implements MarketFeedListener {
+
+    static final int LENGTH_BYTES = 4;
+    static final int FIXED_PAYLOAD_BYTES = 8 + 4 * 8 + 1;
+
+    private final TickRecorderConfig config;
+    private final Counter recorded;
+    private final Counter dropped;
+
+    // Receipt time as epoch nanos, monotonic within a run
+    private final long startEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    private final long startNanos = System.nanoTime();
+
+    private MappedByteBuffer segment;
+    private LocalDate segmentDay;
+    private long nextDayEpochMs;
+    private int segmentNumber;
+
+    public TickRecorder(TickRecorderConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.recorded = meterRegistry.counter("market.recorder.recorded");
+        this.dropped = meterRegistry.counter("market.recorder.dropped");
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        Files.createDirectories(Path.of(config.getDirectory()));
+        roll(System.currentTimeMillis());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    @Override
+    public synchronized void onTick(String instrument, double price, double openDay, double highDay, double lowDay,
+            long receivedNanos) {
+        if (segment == null) {
+            return;
+        }
+        byte[] symbol = instrument.getBytes(StandardCharsets.US_ASCII);
+        int length = FIXED_PAYLOAD_BYTES + Math.min(symbol.length, 255);
+        try {
+            long nowMs = System.currentTimeMillis();
+            if (nowMs >= nextDayEpochMs) {
+                roll(nowMs);
+            } else if (segment.remaining() < LENGTH_BYTES + length + LENGTH_BYTES) {
+                // Leaves room for the zero length that terminates the segment
+                openSegment(segmentNumber + 1);
+            }
+        } catch (IOException e) {
+            dropped.increment();
+            log.error("Failed to roll tick recording: {}", e.getMessage());
+            return;
+        }
+
+        int start = segment.position();
+        segment.position(start + LENGTH_BYTES);
+        segment.putLong(startEpochNanos + (receivedNanos - startNanos));
+        segment.putDouble(price);
+        segment.putDouble(openDay);
+        segment.putDouble(highDay);
+        segment.putDouble(lowDay);
+        segment.put((byte) (length - FIXED_PAYLOAD_BYTES));
+        segment.put(symbol, 0, length - FIXED_PAYLOAD_BYTES);
+        segment.putInt(start, length);
+        recorded.increment();
+    }
+
+    private void roll(long nowMs) throws IOException {
+        segmentDay = LocalDate.ofEpochDay(Math.floorDiv(nowMs, TimeUnit.DAYS.toMillis(1)));
+        nextDayEpochMs = segmentDay.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        openSegment(nextFreeSegment(segmentDay));
+    }
+
+    private int nextFreeSegment(LocalDate day) {
+        int number = 0;
+        while (Files.exists(segmentPath(day, number))) {
+            number++;
+        }
+        return number;
+    }
+
+    private void openSegment(int number) throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        segmentNumber = number;
+        Path path = segmentPath(segmentDay, number);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping outlives the channel; new file pages read as zero, which terminates the records
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) config.getSegmentSizeMb() << 20);
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        log.info("Recording ticks to {}", path);
+    }
+
+    private Path segmentPath(LocalDate day, int number) {
+        return Path.of(config.getDirectory(), String.format("ticks-%s-%04d.bin", day, number));
+    }
+}
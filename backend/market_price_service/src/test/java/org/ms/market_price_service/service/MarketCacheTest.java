@@ -0,0 +1,141 @@
+package org.ms.market_price_service.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class MarketCacheTest {
+
+    @Test
+    void missingDayFieldsKeepPreviousValues() {
+        MarketCache cache = new MarketCache();
+        cache.applyTick("BTC", 100, 90, 110, 80, 1);
+        MarketCache.Snapshot snapshot = cache.applyTick("BTC", 105, Double.NaN, Double.NaN, Double.NaN, 2);
+
+        assertEquals(105, snapshot.price());
+        assertEquals(90, snapshot.openDay());
+        assertEquals(110, snapshot.highDay());
+        assertEquals(80, snapshot.lowDay());
+        // Latency is measured from the oldest unpublished tick
+        assertEquals(1, snapshot.pendingSinceNanos());
+    }
+
+    @Test
+    void claimIsExclusive() {
+        MarketCache cache = new MarketCache();
+        cache.applyTick("BTC", 100, 100, 100, 100, 1);
+
+        assertEquals(100, cache.claim("BTC", 10, MarketCache.Snapshot::pending).price());
+        assertNull(cache.claim("BTC", 11, MarketCache.Snapshot::pending));
+        assertEquals(10, cache.get("BTC").lastPublishedMs());
+    }
+
+    @Test
+    void staleFlagLastsUntilTheNextTick() {
+        MarketCache cache = new MarketCache();
+        cache.applyTick("SOL", 145, 145, 145, 145, 1);
+
+        cache.markStale("SOL");
+        cache.claim("SOL", 10, snapshot -> true);
+        assertTrue(cache.get("SOL").stale());
+
+        cache.applyTick("SOL", 146, Double.NaN, Double.NaN, Double.NaN, 2);
+        assertFalse(cache.get("SOL").stale());
+    }
+
+    @Test
+    void heartbeatKeepsTheTimeOfTheLastTick() {
+        MarketCache cache = new MarketCache();
+        cache.seed("ETH", 3500);
+        assertEquals(0, cache.get("ETH").lastTickMs());
+
+        long before = System.currentTimeMillis();
+        cache.applyTick("ETH", 3510, 3500, 3510, 3500, 1);
+        long tickMs = cache.get("ETH").lastTickMs();
+        assertTrue(tickMs >= before);
+
+        cache.claim("ETH", tickMs + 10_000, snapshot -> true);
+        assertEquals(tickMs, cache.claim("ETH", tickMs + 20_000, snapshot -> true).lastTickMs());
+    }
+
+    @Test
+    void concurrentReadersNeverSeeTornSnapshots() throws Exception {
+        int instruments = 256;
+        int writers = 4;
+        int readers = 4;
+        MarketCache cache = new MarketCache();
+        for (int i = 0; i < instruments; i++) {
+            cache.seed("I" + i, 1);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < writers; w++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int n = 0; n < 200_000; n++) {
+                        // All four fields of one tick carry the same value
+                        double value = random.nextInt(1, 1_000_000);
+                        cache.applyTick("I" + random.nextInt(instruments), value, value, value, value, 1);
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < readers; r++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    while (running.get()) {
+                        cache.forEach((symbol, snapshot) -> {
+                            assertConsistent(snapshot);
+                            reads.incrementAndGet();
+                        });
+                        MarketCache.Snapshot claimed = cache.claim("I0", 0, MarketCache.Snapshot::pending);
+                        if (claimed != null) {
+                            assertConsistent(claimed);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (int w = 0; w < writers; w++) {
+                futures.get(w).get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(instruments, cache.size());
+        assertTrue(reads.get() > 0);
+    }
+
+    private static void assertConsistent(MarketCache.Snapshot snapshot) {
+        if (snapshot.price() != snapshot.openDay() || snapshot.price() != snapshot.highDay()
+                || snapshot.price() != snapshot.lowDay()) {
+            throw new AssertionError("Torn snapshot " + snapshot);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.ms.market_price_service.service.feed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.ms.market_price_service.config.MarketFeedConfig;
+
+class MarketFeedSupervisorTest {
+
+    /**
+     * Fails its first connect, and closes every session right after delivering one tick.
+     */
+    private static class FlakySource implements MarketFeedSource {
+
+        final AtomicInteger connects = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return "flaky";
+        }
+
+        @Override
+        public void connect(List<String> instruments, MarketFeedListener listener) throws Exception {
+            int attempt = connects.incrementAndGet();
+            if (attempt == 1) {
+                throw new IllegalStateException("connection refused");
+            }
+            listener.onTick("BTCUSD_PERP", attempt, Double.NaN, Double.NaN, Double.NaN, System.nanoTime());
+            // A transport error is followed by a close, only one reconnect may come out of it
+            listener.onClosed(new IllegalStateException("reset"));
+            listener.onClosed(null);
+        }
+
+        @Override
+        public void disconnect() {
+        }
+    }
+
+    @Test
+    void reconnectsWithBackoffAfterFailuresAndDrops() throws Exception {
+        MarketFeedConfig config = new MarketFeedConfig();
+        config.setInitialBackoffMs(10);
+        config.setMaxBackoffMs(20);
+        FlakySource source = new FlakySource();
+        List<Double> prices = new CopyOnWriteArrayList<>();
+        CountDownLatch threeTicks = new CountDownLatch(3);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MarketFeedSupervisor supervisor = new MarketFeedSupervisor(config, source,
+                List.of((instrument, price, open, high, low, receivedNanos) -> {
+                    prices.add(price);
+                    threeTicks.countDown();
+                }), meterRegistry);
+
+        supervisor.start();
+        try {
+            assertTrue(threeTicks.await(5, TimeUnit.SECONDS));
+        } finally {
+            supervisor.stop();
+        }
+
+        // Connect attempts 2, 3 and 4 delivered, with no duplicate sessions from the double close
+        assertEquals(List.of(2.0, 3.0, 4.0), prices.subList(0, 3));
+        assertTrue(meterRegistry.get("market.feed.reconnects").counter().count() >= 3);
+        meterRegistry.get("market.feed.tick.age").tag("instrument", "BTCUSD_PERP").gauge();
+    }
+
+    @Test
+    void ticksFromAReplacedSessionAreDropped() throws Exception {
+        MarketFeedConfig config = new MarketFeedConfig();
+        config.setInitialBackoffMs(10);
+        config.setMaxBackoffMs(20);
+        List<MarketFeedListener> sessions = new CopyOnWriteArrayList<>();
+        CountDownLatch reconnected = new CountDownLatch(1);
+        MarketFeedSource source = new MarketFeedSource() {
+            @Override
+            public String name() {
+                return "replaced";
+            }
+
+            @Override
+            public void connect(List<String> instruments, MarketFeedListener listener) {
+                sessions.add(listener);
+                if (sessions.size() == 1) {
+                    listener.onClosed(new IllegalStateException("reset"));
+                } else {
+                    reconnected.countDown();
+                }
+            }
+
+            @Override
+            public void disconnect() {
+            }
+        };
+        List<Double> prices = new CopyOnWriteArrayList<>();
+        MarketFeedSupervisor supervisor = new MarketFeedSupervisor(config, source,
+                List.of((instrument, price, open, high, low, receivedNanos) -> prices.add(price)),
+                new SimpleMeterRegistry());
+
+        supervisor.start();
+        try {
+            assertTrue(reconnected.await(5, TimeUnit.SECONDS));
+            sessions.get(0).onTick("BTCUSD_PERP", 1.0, Double.NaN, Double.NaN, Double.NaN, System.nanoTime());
+            sessions.get(1).onTick("BTCUSD_PERP", 2.0, Double.NaN, Double.NaN, Double.NaN, System.nanoTime());
+        } finally {
+            supervisor.stop();
+        }
+
+        assertEquals(List.of(2.0), prices);
+    }
+
+    @Test
+    void silentInstrumentIsReportedStale() throws Exception {
+        MarketFeedConfig config = new MarketFeedConfig();
+        config.setInstruments(List.of("ETHUSD_PERP"));
+        config.setStaleAfterMs(50);
+        config.setCheckIntervalMs(10);
+        MarketFeedSource silent = new MarketFeedSource() {
+            @Override
+            public String name() {
+                return "silent";
+            }
+
+            @Override
+            public void connect(List<String> instruments, MarketFeedListener listener) {
+            }
+
+            @Override
+            public void disconnect() {
+            }
+        };
+        List<String> stale = new CopyOnWriteArrayList<>();
+        CountDownLatch reported = new CountDownLatch(1);
+        MarketFeedSupervisor supervisor = new MarketFeedSupervisor(config, silent,
+                List.of(new MarketFeedListener() {
+                    @Override
+                    public void onTick(String instrument, double price, double openDay, double highDay,
+                            double lowDay, long receivedNanos) {
+                    }
+
+                    @Override
+                    public void onStale(String instrument) {
+                        stale.add(instrument);
+                        reported.countDown();
+                    }
+                }), new SimpleMeterRegistry());
+
+        supervisor.start();
+        try {
+            assertTrue(reported.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+        } finally {
+            supervisor.stop();
+        }
+
+        // Reported once, not on every check
+        assertEquals(List.of("ETHUSD_PERP"), stale);
+    }
+
+    @Test
+    void backoffGrowsUpToTheCap() {
+        MarketFeedConfig config = new MarketFeedConfig();
+        config.setInitialBackoffMs(100);
+        config.setMaxBackoffMs(1000);
+        MarketFeedSupervisor supervisor = new MarketFeedSupervisor(config, new FlakySource(), List.of(),
+                new SimpleMeterRegistry());
+
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long ceiling = Math.min(1000, 100L << Math.min(attempt, 20));
+            long delay = supervisor.backoffMs(attempt);
+            assertTrue(delay >= ceiling / 2 && delay <= ceiling, "attempt " + attempt + ": " + delay);
+        }
+    }
+}
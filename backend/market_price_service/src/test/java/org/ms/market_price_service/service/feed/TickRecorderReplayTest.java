@@ -0,0 +1,55 @@
+package org.ms.market_price_service.service.feed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ms.market_price_service.config.ReplayConfig;
+import org.ms.market_price_service.config.TickRecorderConfig;
+
+class TickRecorderReplayTest {
+
+    private record Tick(String instrument, double price, double openDay, double highDay, double lowDay) {
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordedTicksInOrder() throws Exception {
+        TickRecorderConfig recorderConfig = new TickRecorderConfig();
+        recorderConfig.setEnabled(true);
+        recorderConfig.setDirectory(directory.toString());
+        recorderConfig.setSegmentSizeMb(1);
+        TickRecorder recorder = new TickRecorder(recorderConfig, new SimpleMeterRegistry());
+        recorder.start();
+        long now = System.nanoTime();
+        recorder.onTick("BTCUSD_PERP", 65000.5, 64000, 66000, 63000, now);
+        recorder.onTick("ETHUSD_PERP", 3500.25, Double.NaN, Double.NaN, Double.NaN, now + 1_000);
+        recorder.onTick("BTCUSD_PERP", 65001, 64000, 66000, 63000, now + 2_000);
+        recorder.stop();
+
+        ReplayConfig replayConfig = new ReplayConfig();
+        replayConfig.setDirectory(directory.toString());
+        replayConfig.setSpeed(0);
+        ReplayFeedSource source = new ReplayFeedSource(replayConfig);
+        List<Tick> replayed = new CopyOnWriteArrayList<>();
+        source.connect(List.of("BTCUSD_PERP", "ETHUSD_PERP"), (instrument, price, open, high, low, receivedNanos) ->
+                replayed.add(new Tick(instrument, price, open, high, low)));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!source.isExhausted() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(source.isExhausted());
+        assertEquals(List.of(
+                new Tick("BTCUSD_PERP", 65000.5, 64000, 66000, 63000),
+                new Tick("ETHUSD_PERP", 3500.25, Double.NaN, Double.NaN, Double.NaN),
+                new Tick("BTCUSD_PERP", 65001, 64000, 66000, 63000)), replayed);
+    }
+}
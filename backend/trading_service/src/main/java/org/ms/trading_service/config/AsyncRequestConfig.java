@@ -0,0 +1,17 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "async-requests")
+public class AsyncRequestConfig {
+    // Max time an HTTP request may wait for the exchange before it is answered with 503
+    private long requestTimeoutMs = 30_000L;
+    // Workers for the blocking part of a request (user lookup, journaling); exchange round trips hold none
+    private int corePoolSize = 16;
+    private int maxPoolSize = 64;
+    private int queueCapacity = 10_000;
+}
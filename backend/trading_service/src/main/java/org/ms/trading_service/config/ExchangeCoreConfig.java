@@ -4,152 +4,229 @@ import exchange.core2.core.ExchangeApi;
 import exchange.core2.core.ExchangeCore;
 import exchange.core2.core.IEventsHandler;
 import exchange.core2.core.SimpleEventsProcessor;
+import exchange.core2.core.common.api.ApiPersistState;
+import exchange.core2.core.common.cmd.CommandResultCode;
 import exchange.core2.core.common.config.ExchangeConfiguration;
 import exchange.core2.core.common.config.InitialStateConfiguration;
 import exchange.core2.core.common.config.PerformanceConfiguration;
 import exchange.core2.core.common.config.SerializationConfiguration;
+import exchange.core2.core.processors.journaling.DiskSerializationProcessor;
+import exchange.core2.core.processors.journaling.DiskSerializationProcessorConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.ms.trading_service.mapper.OrderBookMapper;
-import org.ms.trading_service.repository.OrderRepository;
-import org.ms.trading_service.repository.PositionRepository;
-import org.ms.trading_service.entity.OrderEntity;
-import org.ms.trading_service.entity.PositionEntity;
-import java.util.Optional;
-import java.util.Date;
+import org.ms.trading_service.service.ConflatingPublisher;
+import org.ms.trading_service.service.OrderBookPublisher;
+import org.ms.trading_service.service.PositionBook;
+import org.ms.trading_service.service.PositionSeeder;
+import org.ms.trading_service.service.ReservedMarginLedger;
+import org.ms.trading_service.service.persistence.ExchangeSnapshotIndex;
+import org.ms.trading_service.service.persistence.TradePersistenceStage;
+import org.ms.trading_service.service.trigger.TpSlTriggerEngine;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @Configuration
 @Slf4j
 public class ExchangeCoreConfig {
+
+  // Kept so startup can continue the numbering of the replayed journal files
+  private final AtomicReference<DiskSerializationProcessor> diskProcessor = new AtomicReference<>();
+  // Journal replay runs the events handler again for commands whose effects an earlier run already applied
+  private volatile boolean replaying = true;
+
   @Bean
-  public InitialStateConfiguration initialStateConfiguration() {
-    return InitialStateConfiguration.cleanStart("PERP_DEX");
+  public InitialStateConfiguration initialStateConfiguration(ExchangePersistenceConfig persistenceConfig,
+      ExchangePerformanceConfig performanceConfig, ExchangeSnapshotIndex snapshotIndex) {
+    String exchangeId = persistenceConfig.getExchangeId();
+    if (!persistenceConfig.isEnabled()) {
+      return InitialStateConfiguration.cleanStart(exchangeId);
+    }
+
+    // Newest complete snapshot plus the journal written after it
+    var snapshot = snapshotIndex.findLatestSnapshot(
+        performanceConfig.getMatchingEnginesNum() + performanceConfig.getRiskEnginesNum());
+    if (snapshot.isPresent()) {
+      log.info("Recovering exchange from snapshot {} (seq {})", snapshot.get().snapshotId(), snapshot.get().seq());
+      return InitialStateConfiguration.lastKnownStateFromJournal(exchangeId, snapshot.get().snapshotId(),
+          snapshot.get().seq());
+    }
+    if (snapshotIndex.hasJournal(0L)) {
+      log.info("No snapshot found, replaying exchange journal from the beginning");
+      return InitialStateConfiguration.lastKnownStateFromJournal(exchangeId, 0L, 0L);
+    }
+    return InitialStateConfiguration.cleanStartJournaling(exchangeId);
   }
 
   @Bean
-  public SerializationConfiguration serializationConfiguration() {
-    return SerializationConfiguration.DEFAULT;
+  public SerializationConfiguration serializationConfiguration(ExchangePersistenceConfig persistenceConfig) {
+    if (!persistenceConfig.isEnabled()) {
+      return SerializationConfiguration.DEFAULT;
+    }
+
+    Supplier<LZ4Compressor> compressor = "LZ4_HIGH".equalsIgnoreCase(persistenceConfig.getCompression())
+        ? DiskSerializationProcessorConfiguration.LZ4_HIGH
+        : DiskSerializationProcessorConfiguration.LZ4_FAST;
+    DiskSerializationProcessorConfiguration diskConfig = DiskSerializationProcessorConfiguration.builder()
+        .storageFolder(persistenceConfig.getDirectory())
+        .snapshotLz4CompressorFactory(compressor)
+        .journalLz4CompressorFactory(compressor)
+        .journalFileMaxSize(persistenceConfig.getJournalFileMaxSizeMb() * 1024 * 1024)
+        .journalBufferSize(persistenceConfig.getJournalBufferSize())
+        .journalBatchCompressThreshold(persistenceConfig.getJournalBatchCompressThreshold())
+        .build();
+
+    return SerializationConfiguration.builder()
+        .enableJournaling(true)
+        .serializationProcessorFactory(exchangeCfg -> {
+          DiskSerializationProcessor processor = new DiskSerializationProcessor(exchangeCfg, diskConfig);
+          diskProcessor.set(processor);
+          return processor;
+        })
+        .build();
+  }
+
+  @Bean
+  public PerformanceConfiguration performanceConfiguration(ExchangePerformanceConfig performanceConfig) {
+    requirePowerOfTwo("matching-engines-num", performanceConfig.getMatchingEnginesNum());
+    requirePowerOfTwo("risk-engines-num", performanceConfig.getRiskEnginesNum());
+
+    PerformanceConfiguration.PerformanceConfigurationBuilder builder =
+        "THROUGHPUT".equalsIgnoreCase(performanceConfig.getProfile())
+            ? PerformanceConfiguration.throughputPerformanceBuilder()
+            : PerformanceConfiguration.latencyPerformanceBuilder();
+    builder.ringBufferSize(performanceConfig.getRingBufferSize())
+        .msgsInGroupLimit(performanceConfig.getMsgsInGroupLimit())
+        .matchingEnginesNum(performanceConfig.getMatchingEnginesNum())
+        .riskEnginesNum(performanceConfig.getRiskEnginesNum());
+    if (performanceConfig.getWaitStrategy() != null) {
+      builder.waitStrategy(performanceConfig.getWaitStrategy());
+    }
+
+    PerformanceConfiguration performanceConfiguration = builder.build();
+    log.info("Exchange performance configuration: {}", performanceConfiguration);
+    return performanceConfiguration;
+  }
+
+  private static void requirePowerOfTwo(String name, int value) {
+    if (value < 1 || Integer.bitCount(value) != 1) {
+      throw new IllegalStateException("exchange-core.performance." + name + " must be a power of two, was " + value);
+    }
   }
 
   @Bean
   public ExchangeConfiguration exchangeConfiguration(InitialStateConfiguration initialStateConfiguration,
-      SerializationConfiguration serializationConfiguration) {
+      SerializationConfiguration serializationConfiguration, PerformanceConfiguration performanceConfiguration) {
     return ExchangeConfiguration.defaultBuilder()
         .initStateCfg(initialStateConfiguration)
         .serializationCfg(serializationConfiguration)
-        .performanceCfg(PerformanceConfiguration
-            .latencyPerformanceBuilder()
-            .ringBufferSize(256 * 1024)
-            .msgsInGroupLimit(1024)
-            .matchingEnginesNum(1)
-            .riskEnginesNum(1)
-            .build())
+        .performanceCfg(performanceConfiguration)
         .build();
   }
 
   // Event Handler
   @Bean
-  public IEventsHandler iEventsHandler(org.springframework.messaging.simp.SimpMessagingTemplate simpMessagingTemplate,
+  public IEventsHandler iEventsHandler(ConflatingPublisher publisher,
       OrderBookMapper orderBookMapper, org.ms.trading_service.service.OrderBookCache orderBookCache,
-      OrderRepository orderRepository, PositionRepository positionRepository,
-      org.ms.trading_service.service.PairService pairService) {
+      TradePersistenceStage tradePersistenceStage, ReservedMarginLedger marginLedger,
+      OrderBookPublisher orderBookPublisher, PositionBook positionBook, PositionSeeder positionSeeder,
+      TpSlTriggerEngine triggerEngine, org.ms.trading_service.service.PairService pairService) {
     return new IEventsHandler() {
 
       @Override
       public void commandResult(ApiCommandResult apiCommandResult) {
-        log.info("Command Result: " + apiCommandResult);
-        simpMessagingTemplate.convertAndSend("/topic/commandResult", apiCommandResult);
+        log.debug("Command result: {}", apiCommandResult);
+        if (replaying) {
+          return;
+        }
+        publisher.send("/topic/commandResult", apiCommandResult);
       }
 
       @Override
       public void tradeEvent(IEventsHandler.TradeEvent tradeEvent) {
-        log.info("Trade Event: " + tradeEvent);
-        simpMessagingTemplate.convertAndSend("/topic/trade", tradeEvent);
+        log.debug("Trade event: {}", tradeEvent);
+        // The position book is rebuilt from the replayed trades; DB, ledger, triggers and clients already saw them
+        positionBook.onTrade(tradeEvent);
+        if (replaying) {
+          return;
+        }
+        // Users restored from the snapshot get their positions loaded on their first fill
+        positionSeeder.seedPending();
+        publisher.send("/topic/trade", tradeEvent);
 
         if (tradeEvent.trades != null) {
+          long receivedNanos = System.nanoTime();
+          // The first fill moves an order out of PENDING
+          marginLedger.release(tradeEvent.takerOrderId);
           for (IEventsHandler.Trade trade : tradeEvent.trades) {
+            marginLedger.release(trade.makerOrderId);
+            triggerEngine.onFill(trade.makerOrderId, trade.volume);
+            triggerEngine.onFill(tradeEvent.takerOrderId, trade.volume);
+
             // Update Maker
-            updateOrderAndPosition(trade.makerOrderId, trade.volume, trade.price);
+            tradePersistenceStage.enqueue(trade.makerOrderId, trade.volume, trade.price);
 
             // Update Taker
-            updateOrderAndPosition(tradeEvent.takerOrderId, trade.volume, trade.price);
-          }
-        }
-      }
-
-      private void updateOrderAndPosition(long orderId, long size, long price) {
-        Optional<OrderEntity> orderOpt = orderRepository.findById(orderId);
-        if (orderOpt.isPresent()) {
-          OrderEntity order = orderOpt.get();
-          order.setStatus("FILLED");
-          orderRepository.save(order);
-
-          // Update/Create Position
-          PositionEntity position = positionRepository.findByUidAndSymbol_IdAndSideAndStatus(
-              order.getUid(), order.getSymbol().getId(), order.getSide(), "OPEN")
-              .orElse(PositionEntity.builder()
-                  .uid(order.getUid())
-                  .symbol(order.getSymbol())
-                  .side(order.getSide())
-                  .sizeBase(0L)
-                  .entryPrice(0L)
-                  .leverage(order.getLeverage())
-                  .status("OPEN")
-                  .createdAt(new Date())
-                  .build());
-
-          long newSize = position.getSizeBase() + size;
-          long totalValue = (position.getSizeBase() * position.getEntryPrice()) + (size * price);
-          long newEntryPrice = newSize == 0 ? 0 : totalValue / newSize;
-
-          position.setSizeBase(newSize);
-          position.setEntryPrice(newEntryPrice);
-          position.setUpdatedAt(new Date());
-
-          long leverage = position.getLeverage();
-          long liqPrice = 0;
-          if (leverage > 0) {
-            if ("BUY".equals(position.getSide())) {
-              liqPrice = newEntryPrice - (newEntryPrice / leverage);
-            } else if ("SELL".equals(position.getSide())) {
-              liqPrice = newEntryPrice + (newEntryPrice / leverage);
-            }
+            tradePersistenceStage.enqueue(tradeEvent.takerOrderId, trade.volume, trade.price);
           }
-          position.setLiqPrice(liqPrice);
-
-          positionRepository.save(position);
+          triggerEngine.onPrice(tradeEvent.symbol,
+              tradeEvent.trades.get(tradeEvent.trades.size() - 1).price, receivedNanos);
         }
       }
 
       @Override
       public void rejectEvent(RejectEvent rejectEvent) {
-        log.info("Reject Event: " + rejectEvent);
-        simpMessagingTemplate.convertAndSend("/topic/reject", rejectEvent);
+        log.debug("Reject event: {}", rejectEvent);
+        if (replaying) {
+          return;
+        }
+        publisher.send("/topic/reject", rejectEvent);
+        marginLedger.release(rejectEvent.orderId);
+        positionBook.forgetOrder(rejectEvent.orderId);
+        triggerEngine.forget(rejectEvent.orderId);
+        tradePersistenceStage.enqueueReject(rejectEvent.orderId);
       }
 
       @Override
       public void reduceEvent(ReduceEvent reduceEvent) {
-        log.info("Reduce event: " + reduceEvent);
-        simpMessagingTemplate.convertAndSend("/topic/reduce", reduceEvent);
+        log.debug("Reduce event: {}", reduceEvent);
+        if (replaying) {
+          return;
+        }
+        publisher.send("/topic/reduce", reduceEvent);
       }
 
       @Override
       public void orderBook(OrderBook orderBook) {
-        log.info("OrderBook: " + orderBook);
-        var orderBookDto = orderBookMapper.toDto(orderBook);
-        orderBookDto.setSymbol(pairService.getPairSymbol((int) orderBook.symbol));
-        log.info("OrderBookDto: " + orderBookDto);
-        orderBookCache.update((int) orderBook.symbol, orderBookDto);
-        simpMessagingTemplate.convertAndSend("/topic/orderBook", orderBookDto);
+        log.debug("OrderBook: {}", orderBook);
+        // Only the latest book per symbol within a conflation interval is mapped and published
+        publisher.conflate("orderBook/" + orderBook.symbol, () -> {
+          var orderBookDto = orderBookMapper.toDto(orderBook);
+          orderBookDto.setSymbol(pairService.getPairSymbol((int) orderBook.symbol));
+          log.debug("OrderBookDto: {}", orderBookDto);
+          orderBookCache.update((int) orderBook.symbol, orderBookDto);
+          orderBookPublisher.publish(orderBookDto);
+        });
       }
     };
   }
 
   @Bean(destroyMethod = "shutdown")
   public ExchangeCore exchangeCore(ExchangeConfiguration exchangeConfiguration,
-      IEventsHandler iEventsHandler) {
+      IEventsHandler iEventsHandler, MeterRegistry meterRegistry, ExchangePersistenceConfig persistenceConfig,
+      ExchangeSnapshotIndex snapshotIndex) {
+    InitialStateConfiguration initState = exchangeConfiguration.getInitStateCfg();
+    String mode = initState.fromSnapshot() ? "snapshot"
+        : initState.getJournalTimestampNs() != 0 ? "journal" : "clean";
+    long startNs = System.nanoTime();
 
+    // Snapshot is loaded while building, journal tail is replayed during startup
     ExchangeCore exchangeCore = ExchangeCore.builder()
         .exchangeConfiguration(exchangeConfiguration)
         .resultsConsumer(new SimpleEventsProcessor(iEventsHandler))
@@ -157,10 +234,61 @@ public class ExchangeCoreConfig {
 
     // start
     exchangeCore.startup();
+    if (persistenceConfig.isEnabled()) {
+      continueJournalNumbering(initState.getSnapshotId(), snapshotIndex);
+      // Moves journaling onto a fresh base id, and its result is ordered after every replayed event
+      persistStartupSnapshot(exchangeCore.getApi());
+    }
+    replaying = false;
+
+    long elapsedNs = System.nanoTime() - startNs;
+    Timer.builder("trading.exchange.startup")
+        .description("Exchange core startup including snapshot load and journal replay")
+        .tag("mode", mode)
+        .register(meterRegistry)
+        .record(elapsedNs, TimeUnit.NANOSECONDS);
+    log.info("Exchange core started ({}) in {} ms", mode, TimeUnit.NANOSECONDS.toMillis(elapsedNs));
 
     return exchangeCore;
   }
 
+  /**
+   * exchange-core 0.5.3 restarts journal file numbering at 1 for the base snapshot it recovered from,
+   * and then fails on the first journaled command because that file was written by an earlier run.
+   * Continuing after the last existing file keeps the series readable by the next replay.
+   */
+  private void continueJournalNumbering(long snapshotId, ExchangeSnapshotIndex snapshotIndex) {
+    int lastFile = snapshotIndex.lastJournalFile(snapshotId);
+    DiskSerializationProcessor processor = diskProcessor.get();
+    if (lastFile == 0 || processor == null) {
+      return;
+    }
+    try {
+      Field filesCounter = DiskSerializationProcessor.class.getDeclaredField("filesCounter");
+      filesCounter.setAccessible(true);
+      filesCounter.setInt(processor, lastFile);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot continue exchange journal after file " + lastFile, e);
+    }
+    log.info("Exchange journal for snapshot {} continues after file {}", snapshotId, lastFile);
+  }
+
+  private static void persistStartupSnapshot(ExchangeApi api) {
+    long snapshotId = System.currentTimeMillis();
+    try {
+      CommandResultCode code = api.submitCommandAsync(ApiPersistState.builder().dumpId(snapshotId).build())
+          .get(60, TimeUnit.SECONDS);
+      if (code != CommandResultCode.SUCCESS) {
+        log.error("Startup snapshot {} failed. Code: {}", snapshotId, code);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while taking the startup snapshot", e);
+    } catch (Exception e) {
+      throw new IllegalStateException("Startup snapshot " + snapshotId + " failed", e);
+    }
+  }
+
   @Bean
   public ExchangeApi exchangeApi(ExchangeCore exchangeCore) {
     return exchangeCore.getApi();
@@ -0,0 +1,21 @@
+package org.ms.trading_service.config;
+
+import exchange.core2.core.common.CoreWaitStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "exchange-core.performance")
+public class ExchangePerformanceConfig {
+    // LATENCY or THROUGHPUT, selects the exchange-core builder the values below are applied on
+    private String profile = "LATENCY";
+    private int ringBufferSize = 256 * 1024;
+    private int msgsInGroupLimit = 1024;
+    // Symbols are sharded by (symbolId & (n - 1)) and users by (uid & (n - 1)), so both must be powers of two
+    private int matchingEnginesNum = 1;
+    private int riskEnginesNum = 1;
+    // Keeps the profile default when not set
+    private CoreWaitStrategy waitStrategy;
+}
@@ -0,0 +1,21 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "exchange-core.persistence")
+public class ExchangePersistenceConfig {
+    // When disabled the core starts clean on every boot (no journal, no snapshots)
+    private boolean enabled = false;
+    private String exchangeId = "PERP_DEX";
+    private String directory = "./exchange-data";
+    private long snapshotIntervalMs = 600_000L;
+    // LZ4_FAST or LZ4_HIGH, applied to both snapshots and journal batches
+    private String compression = "LZ4_FAST";
+    private long journalFileMaxSizeMb = 4000L;
+    private int journalBufferSize = 256 * 1024;
+    private int journalBatchCompressThreshold = 2048;
+}
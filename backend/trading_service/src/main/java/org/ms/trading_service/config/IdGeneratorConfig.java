@@ -0,0 +1,22 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.ms.trading_service.utils.SnowflakeIdGenerator;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "id-generator")
+public class IdGeneratorConfig {
+    // 0..1023, must be unique per running trading_service instance
+    private long nodeId = 0L;
+    // 2024-01-01T00:00:00Z, keeps new ids above the millisecond timestamps used as ids before
+    private long epochMs = 1_704_067_200_000L;
+
+    @Bean
+    public SnowflakeIdGenerator idGenerator() {
+        return new SnowflakeIdGenerator(nodeId, epochMs);
+    }
+}
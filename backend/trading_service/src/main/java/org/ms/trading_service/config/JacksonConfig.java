@@ -0,0 +1,52 @@
+package org.ms.trading_service.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import exchange.core2.core.IEventsHandler;
+import exchange.core2.core.common.api.ApiCancelOrder;
+import exchange.core2.core.common.api.ApiMoveOrder;
+import exchange.core2.core.common.api.ApiPlaceOrder;
+import exchange.core2.core.common.api.ApiReduceOrder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Order ids are Snowflake ids above 2^53, which JavaScript numbers cannot hold. Exchange events
+ * published over STOMP (/topic/trade, /topic/reject, /topic/reduce, /topic/commandResult) carry them as strings; the mixins
+ * annotate the exchange-core fields without touching those classes. Spring Boot registers the
+ * module with the ObjectMapper used by both MVC and the message broker.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Module orderIdModule() {
+        SimpleModule module = new SimpleModule("order-ids");
+        module.setMixInAnnotation(IEventsHandler.TradeEvent.class, TradeEventMixin.class);
+        module.setMixInAnnotation(IEventsHandler.Trade.class, TradeMixin.class);
+        module.setMixInAnnotation(IEventsHandler.RejectEvent.class, OrderIdMixin.class);
+        module.setMixInAnnotation(IEventsHandler.ReduceEvent.class, OrderIdMixin.class);
+        module.setMixInAnnotation(ApiPlaceOrder.class, OrderIdMixin.class);
+        module.setMixInAnnotation(ApiCancelOrder.class, OrderIdMixin.class);
+        module.setMixInAnnotation(ApiMoveOrder.class, OrderIdMixin.class);
+        module.setMixInAnnotation(ApiReduceOrder.class, OrderIdMixin.class);
+        return module;
+    }
+
+    abstract static class TradeEventMixin {
+        @JsonSerialize(using = ToStringSerializer.class)
+        long takerOrderId;
+    }
+
+    abstract static class TradeMixin {
+        @JsonSerialize(using = ToStringSerializer.class)
+        long makerOrderId;
+    }
+
+    abstract static class OrderIdMixin {
+        @JsonSerialize(using = ToStringSerializer.class)
+        long orderId;
+    }
+}
@@ -0,0 +1,22 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "market-data")
+public class MarketDataStreamConfig {
+    // PUBSUB: listen on the market_data channel, updates published while down are lost.
+    // STREAM: read market_price_service's stream through a consumer group and resume after a restart
+    private String transport = "PUBSUB";
+    private String streamKey = "market_data_stream";
+    // Suffixed with the instance's id-generator node id, so every instance gets its own group
+    private String group = "trading_service";
+    private int batchSize = 256;
+    private long blockMs = 1000;
+    // Ticks with an older PRICE_LAST_UPDATE_TS skip TP/SL and liquidation, e.g. stream entries replayed after a restart
+    // 0 keeps all
+    private long maxTickAgeMs = 5000;
+}
@@ -0,0 +1,15 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "order-book")
+public class OrderBookStreamConfig {
+    // {symbol} is replaced by the pair, e.g. /topic/orderBook/BTC-USDZ. Use /topic/orderBook.{symbol} with a RabbitMQ relay
+    private String topicPattern = "/topic/orderBook/{symbol}";
+    // Full book re-sent on the topic so late or lossy subscribers converge without calling REST
+    private long snapshotIntervalMs = 5_000L;
+}
@@ -0,0 +1,21 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "order-journal")
+public class OrderJournalConfig {
+    private String directory = "./order-journal";
+    private int segmentSizeMb = 64;
+    // ALWAYS: force every append to disk before the order is submitted.
+    // INTERVAL: force every fsyncIntervalMs, a crash of the machine may lose that window.
+    // NEVER: leave it to the OS, only a process crash is survived
+    private String fsync = "INTERVAL";
+    private long fsyncIntervalMs = 10L;
+    // Max time a journaled order waits before the drainer loads it into the DB
+    private long drainIntervalMs = 50L;
+    private int maxBatchSize = 1000;
+}
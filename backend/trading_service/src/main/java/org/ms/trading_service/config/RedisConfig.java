@@ -2,7 +2,9 @@ package org.ms.trading_service.config;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.ms.trading_service.service.MarkPriceEngine;
 import org.ms.trading_service.service.marketmaker.MarketMakerBot;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -31,20 +33,32 @@ public class RedisConfig {
         return template;
     }
 
+    // In STREAM mode MarketDataStreamConsumer reads market data instead
     @Bean
+    @ConditionalOnProperty(name = "market-data.transport", havingValue = "PUBSUB", matchIfMissing = true)
     RedisMessageListenerContainer container(RedisConnectionFactory connectionFactory,
-            MessageListenerAdapter listenerAdapter) {
+            MessageListenerAdapter listenerAdapter, MessageListenerAdapter markPriceListenerAdapter) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
         container.addMessageListener(listenerAdapter, new ChannelTopic("market_data"));
+        container.addMessageListener(markPriceListenerAdapter, new ChannelTopic("market_data"));
         return container;
     }
 
     @Bean
+    @ConditionalOnProperty(name = "market-data.transport", havingValue = "PUBSUB", matchIfMissing = true)
     MessageListenerAdapter listenerAdapter(MarketMakerBot bot) {
         log.info("MarketMakerBot listener adapter created");
         MessageListenerAdapter adapter = new MessageListenerAdapter(bot, "processMarketUpdate");
         adapter.setSerializer(new GenericJackson2JsonRedisSerializer());
         return adapter;
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "market-data.transport", havingValue = "PUBSUB", matchIfMissing = true)
+    MessageListenerAdapter markPriceListenerAdapter(MarkPriceEngine markPriceEngine) {
+        MessageListenerAdapter adapter = new MessageListenerAdapter(markPriceEngine, "onMarketUpdate");
+        adapter.setSerializer(new GenericJackson2JsonRedisSerializer());
+        return adapter;
+    }
 }
@@ -0,0 +1,15 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "tpsl-triggers")
+public class TpSlTriggerConfig {
+    // Reduce orders are IOC limits this far through the triggering price
+    private int slippageBps = 500;
+    // Reduce orders handed to the exchange in one ring buffer claim
+    private int maxBatchSize = 256;
+}
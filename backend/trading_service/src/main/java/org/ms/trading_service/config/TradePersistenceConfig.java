@@ -0,0 +1,23 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "trade-persistence")
+public class TradePersistenceConfig {
+    // Max fills waiting for the writer thread
+    private int queueCapacity = 65536;
+    // How long the results thread may wait for a free slot before the fill is dropped
+    private long offerTimeoutMs = 5L;
+    // Max time a fill waits before the writer flushes a partial batch
+    private long flushIntervalMs = 50L;
+    private int maxBatchSize = 1024;
+    private int maxRetries = 3;
+    private long retryBackoffMs = 100L;
+    // Batches that exhausted their retries wait here and are retried every parkedReplayIntervalMs
+    private String deadLetterFile = "./trade-persistence/dead-letter.bin";
+    private long parkedReplayIntervalMs = 30_000L;
+}
@@ -0,0 +1,18 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "user-cache")
+public class UserCacheConfig {
+    // address -> uid never changes, so entries only leave the cache when it is full
+    private int maxSize = 100_000;
+    // Unknown addresses may register at any time, so misses are only remembered briefly
+    private long negativeTtlMs = 5_000L;
+    private int maxNegativeEntries = 10_000;
+    // Addresses per GetUidsByAddresses call
+    private int batchSize = 1_000;
+}
@@ -1,12 +1,21 @@
 package org.ms.trading_service.config;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final AsyncRequestConfig asyncRequestConfig;
+
+    public WebConfig(AsyncRequestConfig asyncRequestConfig) {
+        this.asyncRequestConfig = asyncRequestConfig;
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -15,4 +24,22 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
+
+    // Controllers return CompletableFuture, so the Tomcat thread is released while the exchange works
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncRequestConfig.getRequestTimeoutMs());
+        configurer.setTaskExecutor(requestExecutor());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor requestExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncRequestConfig.getCorePoolSize());
+        executor.setMaxPoolSize(asyncRequestConfig.getMaxPoolSize());
+        executor.setQueueCapacity(asyncRequestConfig.getQueueCapacity());
+        executor.setThreadNamePrefix("request-");
+        executor.initialize();
+        return executor;
+    }
 }
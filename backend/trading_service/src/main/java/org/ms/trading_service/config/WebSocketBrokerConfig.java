@@ -0,0 +1,21 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "websocket.broker")
+public class WebSocketBrokerConfig {
+    // SIMPLE: in-JVM broker, each instance only reaches its own clients.
+    // RELAY: subscriptions and fan-out handled by an external STOMP broker (e.g. RabbitMQ with rabbitmq_stomp)
+    private String mode = "SIMPLE";
+    private String relayHost = "localhost";
+    private int relayPort = 61613;
+    private String clientLogin = "guest";
+    private String clientPasscode = "guest";
+    private String systemLogin = "guest";
+    private String systemPasscode = "guest";
+    private String virtualHost;
+}
@@ -2,6 +2,7 @@ package org.ms.trading_service.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -10,10 +11,32 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketBrokerConfig brokerConfig;
+
+    public WebSocketConfig(WebSocketBrokerConfig brokerConfig) {
+        this.brokerConfig = brokerConfig;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if ("RELAY".equalsIgnoreCase(brokerConfig.getMode())) {
+            // RabbitMQ does not allow '/' inside /topic names, pair with order-book.topic-pattern using '.'
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(brokerConfig.getRelayHost())
+                    .setRelayPort(brokerConfig.getRelayPort())
+                    .setClientLogin(brokerConfig.getClientLogin())
+                    .setClientPasscode(brokerConfig.getClientPasscode())
+                    .setSystemLogin(brokerConfig.getSystemLogin())
+                    .setSystemPasscode(brokerConfig.getSystemPasscode());
+            if (brokerConfig.getVirtualHost() != null) {
+                relay.setVirtualHost(brokerConfig.getVirtualHost());
+            }
+        } else {
+            config.enableSimpleBroker("/topic");
+        }
         config.setApplicationDestinationPrefixes("/app");
+        // Order book deltas only apply in sequence, keep each session's messages in publish order
+        config.setPreservePublishOrder(true);
     }
 
     @Override
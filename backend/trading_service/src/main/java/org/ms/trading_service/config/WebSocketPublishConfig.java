@@ -0,0 +1,15 @@
+package org.ms.trading_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "websocket-publish")
+public class WebSocketPublishConfig {
+    // Cadence of conflated topics (order books); only the latest value per key within it is sent
+    private long conflationIntervalMs = 50L;
+    // Immediate messages (trades, rejects, command results) waiting for the publisher thread
+    private int queueCapacity = 65536;
+}
@@ -0,0 +1,40 @@
+package org.ms.trading_service.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.ms.trading_service.dto.OrderBookUpdateDto;
+import org.ms.trading_service.dto.response.CommonResponse;
+import org.ms.trading_service.service.OrderBookPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/trading/orderbook")
+@RequiredArgsConstructor
+@Tag(name = "Order Book Controller", description = "Order book snapshots for resyncing the streamed deltas")
+public class OrderBookController {
+    private final OrderBookPublisher orderBookPublisher;
+
+    @GetMapping("/{symbol}")
+    @Operation(summary = "Get Order Book Snapshot",
+            description = "Full order book with the sequence of the last delta sent on /topic/orderBook/{symbol}")
+    public ResponseEntity<CommonResponse<?>> getSnapshot(@PathVariable String symbol) {
+        OrderBookUpdateDto snapshot = orderBookPublisher.snapshot(symbol);
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(CommonResponse.builder()
+                    .message("No order book for " + symbol)
+                    .success(false)
+                    .build());
+        }
+        return ResponseEntity.ok(CommonResponse.builder()
+                .message("Order book snapshot retrieved successfully")
+                .success(true)
+                .data(snapshot)
+                .build());
+    }
+}
@@ -5,10 +5,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import org.ms.trading_service.dto.request.OrderBatchRequest;
 import org.ms.trading_service.dto.request.OrderRequest;
 import org.ms.trading_service.dto.response.CommonResponse;
+import org.ms.trading_service.dto.response.OrderResult;
 import org.ms.trading_service.service.OrderService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,17 +30,37 @@ public class OrderController {
 
   @PostMapping("/order")
   @Operation(summary = "Place Order", description = "Places a new trading order")
-  public ResponseEntity<CommonResponse<?>> order(@Valid @RequestBody OrderRequest orderRequest) {
-    try {
-      CommonResponse<?> orderResponse = orderService.order(orderRequest);
-      if (orderResponse.isSuccess()) {
-        return ResponseEntity.ok(orderResponse);
-      } else {
-        return ResponseEntity.badRequest().body(orderResponse);
-      }
-    } catch (ExecutionException | InterruptedException e) {
-      return ResponseEntity.badRequest().body(CommonResponse.builder().success(false).message(e.getMessage()).build());
-    }
+  public CompletableFuture<ResponseEntity<CommonResponse<?>>> order(@Valid @RequestBody OrderRequest orderRequest) {
+    return orderService.order(orderRequest)
+        .<ResponseEntity<CommonResponse<?>>>thenApply(orderResponse -> {
+          if (orderResponse.isSuccess()) {
+            return ResponseEntity.ok(orderResponse);
+          } else {
+            return ResponseEntity.badRequest().body(orderResponse);
+          }
+        })
+        .exceptionally(OrderController::failed);
+  }
+
+  @PostMapping("/orders/batch")
+  @Operation(summary = "Place Orders", description = "Validates and places a batch of orders, returning one result per order")
+  public CompletableFuture<ResponseEntity<CommonResponse<?>>> orderBatch(
+      @Valid @RequestBody OrderBatchRequest orderBatchRequest) {
+    return orderService.orderBatch(orderBatchRequest.getOrders())
+        .<ResponseEntity<CommonResponse<?>>>thenApply(results -> {
+          long accepted = results.stream().filter(OrderResult::isSuccess).count();
+          return ResponseEntity.ok(CommonResponse.builder()
+              .success(accepted == results.size())
+              .message(accepted + "/" + results.size() + " orders accepted")
+              .data(results)
+              .build());
+        })
+        .exceptionally(OrderController::failed);
+  }
+
+  private static ResponseEntity<CommonResponse<?>> failed(Throwable e) {
+    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    return ResponseEntity.badRequest().body(CommonResponse.builder().success(false).message(cause.getMessage()).build());
   }
 
 }
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.ms.trading_service.dto.response.CommonResponse;
 
 import jakarta.validation.Valid;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/trading/pairs")
@@ -23,12 +24,15 @@ public class PairController {
 
     @PostMapping
     @Operation(summary = "Add Pair", description = "Adds a new trading pair")
-    public ResponseEntity<CommonResponse<?>> addPair(@RequestBody @Valid PairRequest pairRequest) {
-        CommonResponse<?> response = pairService.addPair(pairRequest);
-        if (response.isSuccess()) {
-            return ResponseEntity.ok(response);
-        } else {
-            return ResponseEntity.badRequest().body(response);
-        }
+    public Callable<ResponseEntity<CommonResponse<?>>> addPair(@RequestBody @Valid PairRequest pairRequest) {
+        // Runs on the MVC request executor, pair setup does DB work and waits for the exchange
+        return () -> {
+            CommonResponse<?> response = pairService.addPair(pairRequest);
+            if (response.isSuccess()) {
+                return ResponseEntity.ok(response);
+            } else {
+                return ResponseEntity.badRequest().body(response);
+            }
+        };
     }
 }
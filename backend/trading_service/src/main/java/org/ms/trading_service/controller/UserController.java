@@ -1,22 +1,24 @@
 package org.ms.trading_service.controller;
 
-import exchange.core2.core.common.api.reports.SingleUserReportResult;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 import org.ms.trading_service.dto.request.UserCreateRequest;
 import org.ms.trading_service.dto.request.UserRequest;
 import org.ms.trading_service.dto.response.CommonResponse;
 import org.ms.trading_service.service.CurrencyService;
 import org.ms.trading_service.service.UserService;
+import org.ms.trading_service.service.MarkPriceEngine;
 import org.ms.trading_service.service.PairService;
+import org.ms.trading_service.service.PositionBook;
+import org.ms.trading_service.service.PositionSeeder;
+import org.ms.trading_service.utils.FixedPoint;
 import org.ms.trading_service.grpc.client.UserGrpcClient;
 import org.ms.trading_service.dto.PositionDto;
 import java.util.List;
 import java.util.ArrayList;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,10 +26,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import java.util.concurrent.ExecutionException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import jakarta.validation.Valid;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/trading/user")
 @RequiredArgsConstructor
@@ -38,187 +43,181 @@ public class UserController {
     private final CurrencyService currencyService;
     private final UserGrpcClient userGrpcClient;
     private final PairService pairService;
+    private final ThreadPoolTaskExecutor requestExecutor;
+    private final PositionBook positionBook;
+    private final PositionSeeder positionSeeder;
+    private final MarkPriceEngine markPriceEngine;
 
     @PostMapping("/create")
     @Operation(summary = "Create User", description = "Creates a new user")
-    public ResponseEntity<CommonResponse<?>> addUser(@RequestBody UserCreateRequest userCreateRequest) {
-        try {
-            boolean success = userService.addUser(userCreateRequest.getUid());
-            if (success) {
-                return ResponseEntity.ok(CommonResponse.builder()
-                        .message("User added successfully")
-                        .success(true)
-                        .build());
-            } else {
-                return ResponseEntity.badRequest().body(CommonResponse.builder()
-                        .message("Failed to add user")
-                        .success(false)
-                        .build());
-            }
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.internalServerError().body(CommonResponse.builder()
-                    .message("Error adding user: " + e.getMessage())
-                    .success(false)
-                    .build());
-        }
+    public CompletableFuture<ResponseEntity<CommonResponse<?>>> addUser(
+            @RequestBody UserCreateRequest userCreateRequest) {
+        return userService.addUserAsync(userCreateRequest.getUid())
+                .<ResponseEntity<CommonResponse<?>>>thenApply(success -> {
+                    if (success) {
+                        return ResponseEntity.ok(CommonResponse.builder()
+                                .message("User added successfully")
+                                .success(true)
+                                .build());
+                    } else {
+                        return ResponseEntity.badRequest().body(CommonResponse.builder()
+                                .message("Failed to add user")
+                                .success(false)
+                                .build());
+                    }
+                })
+                .exceptionally(e -> internalError("Error adding user: ", e));
     }
 
     @PostMapping("/deposit")
     @Operation(summary = "Deposit", description = "Deposits funds for a user")
-    public ResponseEntity<CommonResponse<?>> deposit(@RequestBody @Valid UserRequest userRequest) {
+    public CompletableFuture<ResponseEntity<CommonResponse<?>>> deposit(@RequestBody @Valid UserRequest userRequest) {
         if (!userRequest.getType().equals("DEPOSIT")) {
-            return ResponseEntity.badRequest().body(CommonResponse.builder()
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(CommonResponse.builder()
                     .message("Invalid type")
                     .success(false)
-                    .build());
+                    .build()));
         }
 
-        try {
-            boolean success = userService.deposit(userRequest);
-            if (success) {
-                return ResponseEntity.ok(CommonResponse.builder()
-                        .message("User deposit successfully")
-                        .success(true)
-                        .build());
-            } else {
-                return ResponseEntity.badRequest().body(CommonResponse.builder()
-                        .message("Failed to deposit")
-                        .success(false)
-                        .build());
-            }
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.internalServerError().body(CommonResponse.builder()
-                    .message("Error deposit: " + e.getMessage())
-                    .success(false)
-                    .build());
-        }
+        return userService.depositAsync(userRequest)
+                .<ResponseEntity<CommonResponse<?>>>thenApply(success -> {
+                    if (success) {
+                        return ResponseEntity.ok(CommonResponse.builder()
+                                .message("User deposit successfully")
+                                .success(true)
+                                .build());
+                    } else {
+                        return ResponseEntity.badRequest().body(CommonResponse.builder()
+                                .message("Failed to deposit")
+                                .success(false)
+                                .build());
+                    }
+                })
+                .exceptionally(e -> internalError("Error deposit: ", e));
     }
 
     @PostMapping("/withdraw")
     @Operation(summary = "Withdraw", description = "Withdraws funds for a user")
-    public ResponseEntity<CommonResponse<?>> withdraw(@RequestBody @Valid UserRequest userRequest) {
+    public CompletableFuture<ResponseEntity<CommonResponse<?>>> withdraw(@RequestBody @Valid UserRequest userRequest) {
         if (!userRequest.getType().equals("WITHDRAW")) {
-            return ResponseEntity.badRequest().body(CommonResponse.builder()
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(CommonResponse.builder()
                     .message("Invalid type")
                     .success(false)
-                    .build());
-        }
-        try {
-            boolean success = userService.withdraw(userRequest);
-            if (success) {
-                return ResponseEntity.ok(CommonResponse.builder()
-                        .message("User withdraw successfully")
-                        .success(true)
-                        .build());
-            } else {
-                return ResponseEntity.badRequest().body(CommonResponse.builder()
-                        .message("Failed to withdraw")
-                        .success(false)
-                        .build());
-            }
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.internalServerError().body(CommonResponse.builder()
-                    .message("Error withdraw: " + e.getMessage())
-                    .success(false)
-                    .build());
+                    .build()));
         }
+
+        return userService.withdrawAsync(userRequest)
+                .<ResponseEntity<CommonResponse<?>>>thenApply(success -> {
+                    if (success) {
+                        return ResponseEntity.ok(CommonResponse.builder()
+                                .message("User withdraw successfully")
+                                .success(true)
+                                .build());
+                    } else {
+                        return ResponseEntity.badRequest().body(CommonResponse.builder()
+                                .message("Failed to withdraw")
+                                .success(false)
+                                .build());
+                    }
+                })
+                .exceptionally(e -> internalError("Error withdraw: ", e));
     }
 
     @GetMapping("/balance")
     @Operation(summary = "Get Balance", description = "Retrieves the balance of a user")
-    public ResponseEntity<CommonResponse<?>> getBalance(@RequestParam Long id, @RequestParam String symbol) {
+    public CompletableFuture<ResponseEntity<CommonResponse<?>>> getBalance(@RequestParam Long id,
+            @RequestParam String symbol) {
         Long currencyId = currencyService.getCurrencyId(symbol);
 
-        try {
-            SingleUserReportResult reportUser = userService.getUserReport(id);
-            if (reportUser != null && currencyId != null
-                    && reportUser.getAccounts().containsKey(currencyId.intValue())) {
-                return ResponseEntity.ok(CommonResponse.builder()
-                        .message("User balance retrieved successfully")
-                        .success(true)
-                        .data(reportUser.getAccounts().get(currencyId.intValue()))
-                        .build());
-            } else {
-                return ResponseEntity.badRequest().body(CommonResponse.builder()
-                        .message("Failed to getBalance")
-                        .success(false)
-                        .build());
-            }
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.internalServerError().body(CommonResponse.builder()
-                    .message("Error deposit: " + e.getMessage())
-                    .success(false)
-                    .build());
-        }
-
+        return userService.getUserReportAsync(id)
+                .<ResponseEntity<CommonResponse<?>>>thenApply(reportUser -> {
+                    if (reportUser != null && currencyId != null
+                            && reportUser.getAccounts().containsKey(currencyId.intValue())) {
+                        return ResponseEntity.ok(CommonResponse.builder()
+                                .message("User balance retrieved successfully")
+                                .success(true)
+                                .data(reportUser.getAccounts().get(currencyId.intValue()))
+                                .build());
+                    } else {
+                        return ResponseEntity.badRequest().body(CommonResponse.builder()
+                                .message("Failed to getBalance")
+                                .success(false)
+                                .build());
+                    }
+                })
+                .exceptionally(e -> internalError("Error getting balance: ", e));
     }
 
     @GetMapping("/positions")
     @Operation(summary = "Get Positions", description = "Retrieves the positions of a user")
-    public ResponseEntity<CommonResponse<?>> getPositions(@RequestParam String address) {
-        try {
-            Long uid = userGrpcClient.getUidByAddress(address);
-            if (uid == null) {
-                return ResponseEntity.badRequest().body(CommonResponse.builder()
-                        .message("User not found")
-                        .success(false)
-                        .build());
-            }
-
-            SingleUserReportResult report = userService.getUserReport(uid);
-            List<PositionDto> positionDtos = new ArrayList<>();
-
-            if (report.getPositions() == null) {
-                return ResponseEntity.ok(CommonResponse.builder()
-                        .message("User has no positions")
-                        .success(true)
-                        .data(positionDtos)
-                        .build());
-            }
-
-            report.getPositions().forEachKeyValue((symbolId, position) -> {
-                String symbol = pairService.getPairSymbol(symbolId);
-
-                long sizeRaw = position.getOpenVolume();
-                long priceSum = position.getOpenPriceSum();
-
-                // Assuming standard scaling for now, will refine
-                BigDecimal size = new BigDecimal(sizeRaw).divide(new BigDecimal(1000), 3, RoundingMode.HALF_UP); // Lot
-                                                                                                                 // size
-                                                                                                                 // typically
-                BigDecimal entryPrice = BigDecimal.ZERO;
-                if (sizeRaw > 0) {
-                    entryPrice = new BigDecimal(priceSum).divide(new BigDecimal(sizeRaw), 2, RoundingMode.HALF_UP)
-                            .divide(new BigDecimal(100), 2, RoundingMode.HALF_UP);
-                }
-
-                PositionDto dto = PositionDto.builder()
-                        .market(symbol)
-                        .side(position.getDirection().toString())
-                        .size(size.toString()) // base units
-                        .entryPrice(entryPrice.toString())
-                        .markPrice(entryPrice.toString()) // Placeholder
-                        .liqPrice("0") // Placeholder
-                        .margin("0") // Placeholder
-                        .pnl("0") // Placeholder
-                        .pnlPercent("0%") // Placeholder
-                        .positive(true)
-                        .build();
-
-                positionDtos.add(dto);
-            });
-
-            return ResponseEntity.ok(CommonResponse.builder()
-                    .message("Positions retrieved successfully")
-                    .success(true)
-                    .data(positionDtos)
-                    .build());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().body(CommonResponse.builder()
-                    .message("Error fetching positions: " + e.getMessage())
+    public CompletableFuture<ResponseEntity<CommonResponse<?>>> getPositions(@RequestParam String address) {
+        return CompletableFuture.supplyAsync(() -> userGrpcClient.getUidByAddress(address), requestExecutor)
+                .thenCompose(uid -> uid == null ? CompletableFuture.completedFuture(null)
+                        // Only after a snapshot restore, once per user
+                        : positionSeeder.seed(uid).thenApply(seeded -> uid))
+                .thenApply(this::toPositionsResponse)
+                .exceptionally(e -> {
+                    log.error("Error fetching positions for {}", address, e);
+                    return internalError("Error fetching positions: ", e);
+                });
+    }
+
+    private ResponseEntity<CommonResponse<?>> toPositionsResponse(Long uid) {
+        if (uid == null) {
+            return ResponseEntity.badRequest().body(CommonResponse.builder()
+                    .message("User not found")
                     .success(false)
                     .build());
         }
+
+        List<PositionBook.PositionView> positions = positionBook.positionsOf(uid);
+        List<PositionDto> positionDtos = new ArrayList<>(positions.size());
+        for (PositionBook.PositionView position : positions) {
+            positionDtos.add(toPositionDto(position));
+        }
+
+        return ResponseEntity.ok(CommonResponse.builder()
+                .message(positionDtos.isEmpty() ? "User has no positions" : "Positions retrieved successfully")
+                .success(true)
+                .data(positionDtos)
+                .build());
+    }
+
+    private PositionDto toPositionDto(PositionBook.PositionView position) {
+        int symbolId = position.symbolId();
+        Long lotSizeScale = pairService.getLotSizeScale((long) symbolId);
+        long lots = lotSizeScale == null ? 1 : lotSizeScale;
+
+        long entryPrice = position.entryPrice();
+        long markPrice = markPriceEngine.markPrice(symbolId);
+        if (markPrice == 0) {
+            long lastPrice = positionBook.lastTradePrice(symbolId);
+            markPrice = lastPrice > 0 ? lastPrice : entryPrice;
+        }
+        // Quote amounts at PRICE_SCALE
+        long margin = position.margin() / lots;
+        long pnl = position.unrealizedPnl(markPrice) / lots;
+        long pnlPercent = margin == 0 ? 0 : pnl * 10_000 / margin;
+
+        return PositionDto.builder()
+                .market(pairService.getPairSymbol(symbolId))
+                .side(position.direction() > 0 ? "LONG" : "SHORT")
+                .size(FixedPoint.format(position.openVolume(), FixedPoint.scaleOf(lots)))
+                .entryPrice(FixedPoint.format(entryPrice, FixedPoint.PRICE_SCALE))
+                .markPrice(FixedPoint.format(markPrice, FixedPoint.PRICE_SCALE))
+                .liqPrice(FixedPoint.format(position.liquidationPrice(), FixedPoint.PRICE_SCALE))
+                .margin(FixedPoint.format(margin, FixedPoint.PRICE_SCALE))
+                .pnl(FixedPoint.format(pnl, FixedPoint.PRICE_SCALE))
+                .pnlPercent(FixedPoint.format(pnlPercent, 2) + "%")
+                .positive(pnl >= 0)
+                .build();
+    }
+
+    private static ResponseEntity<CommonResponse<?>> internalError(String message, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return ResponseEntity.internalServerError().body(CommonResponse.builder()
+                .message(message + cause.getMessage())
+                .success(false)
+                .build());
     }
 }
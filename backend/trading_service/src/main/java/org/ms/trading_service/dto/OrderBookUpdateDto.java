@@ -0,0 +1,29 @@
+package org.ms.trading_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Message of the per-symbol order book topic. A snapshot carries every level, a delta only the
+ * levels whose size changed, with size 0 for removed levels. Levels are [price, size] pairs.
+ * Deltas apply on top of the snapshot or delta with sequence - 1.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBookUpdateDto {
+    public static final String SNAPSHOT = "snapshot";
+    public static final String DELTA = "delta";
+
+    private String type;
+    private String symbol;
+    private long sequence;
+    private long timestamp;
+    private List<double[]> asks;
+    private List<double[]> bids;
+}
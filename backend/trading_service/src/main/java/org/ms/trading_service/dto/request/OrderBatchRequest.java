@@ -0,0 +1,28 @@
+package org.ms.trading_service.dto.request;
+
+import java.io.Serializable;
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderBatchRequest implements Serializable {
+  // Shared with the gRPC PlaceOrders stream
+  public static final int MAX_ORDERS = 500;
+
+  @NotEmpty(message = "Orders are required")
+  @Size(max = MAX_ORDERS, message = "At most " + MAX_ORDERS + " orders per batch")
+  List<@Valid OrderRequest> orders;
+}
@@ -4,6 +4,7 @@ import java.io.Serializable;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -39,7 +40,7 @@ public class OrderRequest implements Serializable {
   @NotBlank(message = "Size quote is required")
   String sizeQuote;
 
-  @NotBlank(message = "Leverage is required")
+  @NotNull(message = "Leverage is required")
   @Min(value = 1, message = "Leverage must be greater than 0")
   Long leverage;
 
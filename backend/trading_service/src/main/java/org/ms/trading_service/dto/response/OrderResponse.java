@@ -1,5 +1,7 @@
 package org.ms.trading_service.dto.response;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,6 +15,8 @@ import lombok.experimental.FieldDefaults;
 @AllArgsConstructor
 @Builder
 public class OrderResponse {
+  // Snowflake ids exceed 2^53, JavaScript clients would round them as numbers
+  @JsonSerialize(using = ToStringSerializer.class)
   Long id;
   String senderAddress;
   String pair;
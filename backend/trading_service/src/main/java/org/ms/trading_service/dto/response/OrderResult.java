@@ -0,0 +1,24 @@
+package org.ms.trading_service.dto.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderResult {
+  int index;
+  // Snowflake ids exceed 2^53, JavaScript clients would round them as numbers
+  @JsonSerialize(using = ToStringSerializer.class)
+  Long orderId;
+  boolean success;
+  String message;
+}
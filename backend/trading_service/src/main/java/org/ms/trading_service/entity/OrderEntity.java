@@ -2,14 +2,24 @@ package org.ms.trading_service.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.experimental.FieldDefaults;
 import lombok.AccessLevel;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
+
 import java.util.Date;
 
 @Data
@@ -18,7 +28,14 @@ import java.util.Date;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-public class OrderEntity {
+// Status updates from the fill path must not write back TP/SL prices a fired trigger cleared meanwhile
+@DynamicUpdate
+@Table(indexes = {
+        @Index(name = "idx_order_uid_status", columnList = "uid, status"),
+        @Index(name = "idx_order_status", columnList = "status")
+})
+public class OrderEntity implements Persistable<Long> {
+    // Assigned by SnowflakeIdGenerator, so inserts need no generated key and can be batched
     @Id
     private Long orderId;
     private Long uid;
@@ -37,4 +54,26 @@ public class OrderEntity {
     private String status;
     private Date createdAt;
     private Date updatedAt;
+
+    // Lets save() persist a new order directly instead of merging, which would select it first
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public Long getId() {
+        return orderId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
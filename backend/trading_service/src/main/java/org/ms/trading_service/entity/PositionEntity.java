@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Persistable;
 
 import java.util.Date;
 
@@ -13,9 +14,10 @@ import java.util.Date;
 @Builder
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-public class PositionEntity {
+@Table(indexes = @Index(name = "idx_position_uid_pair_side_status", columnList = "uid, pair_id, side, status"))
+public class PositionEntity implements Persistable<Long> {
+    // Assigned by SnowflakeIdGenerator; an IDENTITY key would make Hibernate insert row by row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     Long id;
 
     @NotNull
@@ -46,4 +48,20 @@ public class PositionEntity {
     String status;
     Date createdAt;
     Date updatedAt;
+
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
@@ -0,0 +1,25 @@
+package org.ms.trading_service.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+
+// A parked fill batch committed by a replay, kept until its dead-letter file is gone
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+public class ReplayedBatchEntity {
+    @Id
+    Long batchId;
+    Date replayedAt;
+}
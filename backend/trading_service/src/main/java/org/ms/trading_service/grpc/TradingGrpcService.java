@@ -12,10 +12,25 @@ import org.ms.trading_service.grpc.WithdrawRequest;
 import org.ms.trading_service.grpc.WithdrawResponse;
 import org.ms.trading_service.grpc.TradingServiceGrpc.TradingServiceImplBase;
 import org.ms.trading_service.service.CurrencyService;
+import org.ms.trading_service.service.OrderService;
 import org.ms.trading_service.service.UserService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import org.ms.trading_service.dto.request.OrderRequest;
 import org.ms.trading_service.dto.request.UserRequest;
+import org.ms.trading_service.dto.response.OrderResult;
+
+import static org.ms.trading_service.dto.request.OrderBatchRequest.MAX_ORDERS;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -23,6 +38,8 @@ import org.ms.trading_service.dto.request.UserRequest;
 public class TradingGrpcService extends TradingServiceImplBase {
     private final UserService userService;
     private final CurrencyService currencyService;
+    private final OrderService orderService;
+    private final Validator validator;
 
     @Override
     public void ping(PingRequest request, StreamObserver<PingResponse> responseObserver) {
@@ -98,4 +115,132 @@ public class TradingGrpcService extends TradingServiceImplBase {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public StreamObserver<OrderBatchRequest> placeOrders(StreamObserver<OrderBatchResponse> responseObserver) {
+        return new StreamObserver<>() {
+            private final AtomicInteger inFlight = new AtomicInteger();
+            private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+            private volatile boolean inputCompleted;
+            private volatile boolean cancelled;
+            private boolean completed;
+
+            @Override
+            public void onNext(OrderBatchRequest request) {
+                if (cancelled) {
+                    return;
+                }
+                int count = request.getOrdersCount();
+                // Indexed by input position, so results go out in input order
+                OrderResultMessage[] results = new OrderResultMessage[count];
+                if (count > MAX_ORDERS) {
+                    // Same cap as POST /orders/batch, the whole batch is refused
+                    for (int i = 0; i < count; i++) {
+                        results[i] = failed(i, "At most " + MAX_ORDERS + " orders per batch");
+                    }
+                    send(request.getBatchId(), results);
+                    return;
+                }
+
+                inFlight.incrementAndGet();
+                List<OrderRequest> valid = new ArrayList<>();
+                List<Integer> validIndexes = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    OrderRequest orderRequest = toOrderRequest(request.getOrders(i));
+                    Set<ConstraintViolation<OrderRequest>> violations = validator.validate(orderRequest);
+                    if (violations.isEmpty()) {
+                        valid.add(orderRequest);
+                        validIndexes.add(i);
+                    } else {
+                        results[i] = failed(i, violations.stream().map(ConstraintViolation::getMessage)
+                                .collect(Collectors.joining(", ")));
+                    }
+                }
+
+                CompletableFuture<List<OrderResult>> batch = orderService.orderBatch(valid);
+                pending.add(batch);
+                batch.whenComplete((batchResults, error) -> {
+                    pending.remove(batch);
+                    if (!cancelled) {
+                        for (int i = 0; i < validIndexes.size(); i++) {
+                            int index = validIndexes.get(i);
+                            if (error != null) {
+                                results[index] = failed(index, "Batch failed: " + error.getMessage());
+                                continue;
+                            }
+                            OrderResult orderResult = batchResults.get(i);
+                            OrderResultMessage.Builder result = OrderResultMessage.newBuilder()
+                                    .setIndex(index)
+                                    .setSuccess(orderResult.isSuccess())
+                                    .setMessage(orderResult.getMessage());
+                            if (orderResult.getOrderId() != null) {
+                                result.setOrderId(orderResult.getOrderId());
+                            }
+                            results[index] = result.build();
+                        }
+                        send(request.getBatchId(), results);
+                    }
+                    if (inFlight.decrementAndGet() == 0 && inputCompleted) {
+                        complete();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("PlaceOrders stream cancelled by client: {}", t.getMessage());
+                // Batches not yet handed to the exchange are dropped, their results have nowhere to go
+                cancelled = true;
+                pending.forEach(batch -> batch.cancel(false));
+            }
+
+            @Override
+            public void onCompleted() {
+                inputCompleted = true;
+                if (inFlight.get() == 0) {
+                    complete();
+                }
+            }
+
+            private void send(String batchId, OrderResultMessage[] results) {
+                OrderBatchResponse response = OrderBatchResponse.newBuilder()
+                        .setBatchId(batchId)
+                        .addAllResults(Arrays.asList(results))
+                        .build();
+                // Results complete on exchange threads, the observer itself is not thread-safe
+                synchronized (responseObserver) {
+                    if (!cancelled) {
+                        responseObserver.onNext(response);
+                    }
+                }
+            }
+
+            private void complete() {
+                synchronized (responseObserver) {
+                    if (!completed && !cancelled) {
+                        completed = true;
+                        responseObserver.onCompleted();
+                    }
+                }
+            }
+        };
+    }
+
+    private static OrderResultMessage failed(int index, String message) {
+        return OrderResultMessage.newBuilder().setIndex(index).setSuccess(false).setMessage(message).build();
+    }
+
+    private static OrderRequest toOrderRequest(OrderMessage message) {
+        return OrderRequest.builder()
+                .senderAddress(message.getSenderAddress())
+                .pair(message.getPair())
+                .side(message.getSide())
+                .type(message.getType())
+                .entryPrice(message.getEntryPrice())
+                .sizeQuote(message.getSizeQuote())
+                .leverage(message.getLeverage())
+                .tpPrice(message.getTpPrice().isEmpty() ? null : message.getTpPrice())
+                .slPrice(message.getSlPrice().isEmpty() ? null : message.getSlPrice())
+                .build();
+    }
+}
@@ -1,26 +1,170 @@
 package org.ms.trading_service.grpc.client;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.ms.trading_service.config.UserCacheConfig;
+import org.ms.user_service.grpc.AddressUid;
 import org.ms.user_service.grpc.UserServiceGrpc;
-import org.ms.user_service.grpc.GetUidByAddressRequest;
-import org.ms.user_service.grpc.GetUidByAddressResponse;
+import org.ms.user_service.grpc.GetUidsByAddressesRequest;
+import org.ms.user_service.grpc.GetUidsByAddressesResponse;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves wallet addresses to uids through a near cache. Known addresses are kept until the cache
+ * is full, unknown ones for {@link UserCacheConfig#getNegativeTtlMs()}. Misses are fetched with the
+ * batched GetUidsByAddresses RPC, so warming many addresses costs one call per batch.
+ */
 @Service
 public class UserGrpcClient {
 
     @GrpcClient("user_service")
     private UserServiceGrpc.UserServiceBlockingStub userServiceBlockingStub;
 
+    private final UserCacheConfig config;
+    private final Map<String, Long> uids = new ConcurrentHashMap<>();
+    // address -> expiry in System.nanoTime()
+    private final Map<String, Long> unknownAddresses = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter negativeHitCounter;
+    private final Counter missCounter;
+    private final Timer rpcTimer;
+
+    public UserGrpcClient(UserCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        Gauge.builder("trading.user_cache.size", uids, Map::size)
+                .description("Cached address to uid mappings")
+                .register(meterRegistry);
+        this.hitCounter = meterRegistry.counter("trading.user_cache.requests", "result", "hit");
+        this.negativeHitCounter = meterRegistry.counter("trading.user_cache.requests", "result", "negative_hit");
+        this.missCounter = meterRegistry.counter("trading.user_cache.requests", "result", "miss");
+        this.rpcTimer = Timer.builder("trading.user_rpc.latency")
+                .description("GetUidsByAddresses round trip")
+                .tag("method", "GetUidsByAddresses")
+                .register(meterRegistry);
+    }
+
     public Long getUidByAddress(String address) {
-        GetUidByAddressRequest request = GetUidByAddressRequest.newBuilder()
-                .setAddress(address)
+        Long uid = uids.get(address);
+        if (uid != null) {
+            hitCounter.increment();
+            return uid;
+        }
+        if (isKnownUnknown(address)) {
+            negativeHitCounter.increment();
+            return null;
+        }
+        missCounter.increment();
+        return fetch(List.of(address)).get(address);
+    }
+
+    // Asks user_service even when the address is cached as unknown, for callers waiting on a signup
+    public Long fetchUidByAddress(String address) {
+        Long uid = uids.get(address);
+        return uid != null ? uid : fetch(List.of(address)).get(address);
+    }
+
+    /**
+     * Resolves many addresses at once, fetching only the ones not cached. Unknown addresses are
+     * absent from the result.
+     */
+    public Map<String, Long> getUidsByAddresses(Collection<String> addresses) {
+        Map<String, Long> result = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String address : addresses) {
+            Long uid = uids.get(address);
+            if (uid != null) {
+                hitCounter.increment();
+                result.put(address, uid);
+            } else if (isKnownUnknown(address)) {
+                negativeHitCounter.increment();
+            } else if (missing.add(address)) {
+                missCounter.increment();
+            }
+        }
+
+        List<String> batch = new ArrayList<>(Math.min(missing.size(), config.getBatchSize()));
+        for (String address : missing) {
+            batch.add(address);
+            if (batch.size() == config.getBatchSize()) {
+                result.putAll(fetch(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            result.putAll(fetch(batch));
+        }
+        return result;
+    }
+
+    private Map<String, Long> fetch(List<String> addresses) {
+        GetUidsByAddressesRequest request = GetUidsByAddressesRequest.newBuilder()
+                .addAllAddresses(addresses)
                 .build();
+        GetUidsByAddressesResponse response;
         try {
-            GetUidByAddressResponse response = userServiceBlockingStub.getUidByAddress(request);
-            return response.getUid();
+            response = rpcTimer.recordCallable(() -> userServiceBlockingStub.getUidsByAddresses(request));
         } catch (io.grpc.StatusRuntimeException e) {
             throw new RuntimeException(e.getStatus().getDescription());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        // The DB may spell an address in another case than the caller, results are keyed as requested
+        Map<String, Long> byAddress = new HashMap<>(response.getUidsCount());
+        for (AddressUid addressUid : response.getUidsList()) {
+            byAddress.put(addressUid.getAddress().toLowerCase(Locale.ROOT), addressUid.getUid());
+        }
+        Map<String, Long> found = new HashMap<>(addresses.size());
+        long unknownUntil = System.nanoTime() + config.getNegativeTtlMs() * 1_000_000L;
+        for (String address : addresses) {
+            Long uid = byAddress.get(address.toLowerCase(Locale.ROOT));
+            if (uid != null) {
+                found.put(address, uid);
+                put(uids, address, uid, config.getMaxSize());
+                unknownAddresses.remove(address);
+            } else {
+                put(unknownAddresses, address, unknownUntil, config.getMaxNegativeEntries());
+            }
+        }
+        return found;
+    }
+
+    private boolean isKnownUnknown(String address) {
+        Long expiresAt = unknownAddresses.get(address);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt - System.nanoTime() > 0) {
+            return true;
+        }
+        unknownAddresses.remove(address, expiresAt);
+        return false;
+    }
+
+    // Bounded without ordering: entries never go stale, so evicting an arbitrary one is good enough
+    private static void put(Map<String, Long> cache, String address, Long value, int maxSize) {
+        if (cache.size() >= maxSize && !cache.containsKey(address)) {
+            Iterator<String> iterator = cache.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
         }
+        cache.put(address, value);
     }
 }
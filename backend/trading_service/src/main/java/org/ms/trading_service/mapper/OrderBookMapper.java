@@ -5,16 +5,25 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 import org.ms.trading_service.dto.OrderBookDto;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.service.SymbolRegistry;
+import org.ms.trading_service.utils.FixedPoint;
+import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Mapper(componentModel = "spring")
 public abstract class OrderBookMapper {
 
+    private static final int DEFAULT_LOT_SCALE = 3;
+
+    @Autowired
+    protected SymbolRegistry symbolRegistry;
+
     @Mapping(target = "symbol", source = "symbol", qualifiedByName = "mapSymbol")
-    @Mapping(target = "asks", expression = "java(mapLevel(orderBook.asks))")
-    @Mapping(target = "bids", expression = "java(mapLevel(orderBook.bids))")
+    @Mapping(target = "asks", expression = "java(mapLevel(orderBook.asks, lotScaleOf(orderBook.symbol)))")
+    @Mapping(target = "bids", expression = "java(mapLevel(orderBook.bids, lotScaleOf(orderBook.symbol)))")
     @Mapping(target = "timestamp", source = "timestamp")
     public abstract OrderBookDto toDto(IEventsHandler.OrderBook orderBook);
 
@@ -23,15 +32,23 @@ public abstract class OrderBookMapper {
         return String.valueOf(symbol); // Placeholder for symbol mapping if it's long
     }
 
-    protected List<OrderBookDto.OrderBookLevel> mapLevel(List<IEventsHandler.OrderBookRecord> records) {
+    // Decimals of the pair's lot size, volumes are expressed in lots
+    protected int lotScaleOf(long symbol) {
+        PairEntity pair = symbolRegistry.getPair((int) symbol);
+        return pair == null ? DEFAULT_LOT_SCALE : FixedPoint.scaleOf(pair.getLotSizeScale());
+    }
+
+    protected List<OrderBookDto.OrderBookLevel> mapLevel(List<IEventsHandler.OrderBookRecord> records, int lotScale) {
         if (records == null) {
             return List.of();
         }
-        return records.stream()
-                .map(r -> OrderBookDto.OrderBookLevel.builder()
-                        .price(r.price / 100.0)
-                        .size(r.volume / 1000.0)
-                        .build())
-                .collect(Collectors.toList());
+        List<OrderBookDto.OrderBookLevel> levels = new ArrayList<>(records.size());
+        for (IEventsHandler.OrderBookRecord r : records) {
+            levels.add(OrderBookDto.OrderBookLevel.builder()
+                    .price(FixedPoint.toDouble(r.price, FixedPoint.PRICE_SCALE))
+                    .size(FixedPoint.toDouble(r.volume, lotScale))
+                    .build());
+        }
+        return levels;
     }
 }
@@ -2,8 +2,13 @@ package org.ms.trading_service.repository;
 
 import org.ms.trading_service.entity.OrderEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +18,18 @@ public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
 
     List<OrderEntity> findByUidAndStatus(Long uid, String status);
 
+    List<OrderEntity> findByStatus(String status);
+
+    // Orders carrying a take-profit or stop-loss
+    @Query("select o from OrderEntity o where o.status in :statuses and (o.tpPrice is not null or o.slPrice is not null)")
+    List<OrderEntity> findWithTriggersByStatusIn(@Param("statuses") Collection<String> statuses);
+
+    // A fired or cancelled trigger, so a restart does not rebuild it
+    @Transactional
+    @Modifying
+    @Query("update OrderEntity o set o.tpPrice = null, o.slPrice = null where o.orderId in :orderIds")
+    int clearTriggers(@Param("orderIds") Collection<Long> orderIds);
+
     // Alternative if we want to pass the PairEntity directly, but string is
     // convenient here
     // List<OrderEntity> findByUidAndSymbolAndStatusIn(Long uid, PairEntity symbol,
@@ -4,10 +4,14 @@ import org.ms.trading_service.entity.PositionEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PositionRepository extends JpaRepository<PositionEntity, Long> {
     Optional<PositionEntity> findByUidAndSymbol_IdAndSideAndStatus(Long uid, Integer symbolId, String side,
             String status);
+
+    List<PositionEntity> findByUidInAndStatus(Collection<Long> uids, String status);
 }
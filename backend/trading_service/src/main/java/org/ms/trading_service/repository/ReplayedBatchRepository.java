@@ -0,0 +1,9 @@
+package org.ms.trading_service.repository;
+
+import org.ms.trading_service.entity.ReplayedBatchEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReplayedBatchRepository extends JpaRepository<ReplayedBatchEntity, Long> {
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.ms.trading_service.dto.request.UserRequest;
 import org.ms.trading_service.grpc.client.UserGrpcClient;
+import org.ms.trading_service.service.CurrencyService;
 import org.ms.trading_service.service.UserService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -15,22 +16,26 @@ public class BotInitializer implements CommandLineRunner {
 
     private final UserGrpcClient userGrpcClient;
     private final UserService userService;
+    private final CurrencyService currencyService;
 
     @Override
     public void run(String... args) throws Exception {
         String botAddress = "0xBOT";
         Long botUid = null;
 
-        // Retry loop for fetching Bot UID
+        // Retry loop for fetching Bot UID, user_service may not have registered the bot yet
         for (int i = 0; i < 5; i++) {
             try {
-                botUid = userGrpcClient.getUidByAddress(botAddress);
-                log.info("Found Bot UID: {} for address: {}", botUid, botAddress);
-                break;
+                botUid = userGrpcClient.fetchUidByAddress(botAddress);
+                if (botUid != null) {
+                    log.info("Found Bot UID: {} for address: {}", botUid, botAddress);
+                    break;
+                }
+                log.warn("Attempt {}/5: Bot address {} not registered yet. Retrying in 2s...", i + 1, botAddress);
             } catch (Exception e) {
                 log.warn("Attempt {}/5: Failed to fetch Bot UID for address: {}. Retrying in 2s...", i + 1, botAddress);
-                Thread.sleep(2000);
             }
+            Thread.sleep(2000);
         }
 
         if (botUid == null) {
@@ -38,6 +43,14 @@ public class BotInitializer implements CommandLineRunner {
             return;
         }
 
+        // Balance survives restarts when the core recovers from snapshot/journal
+        Long usdzId = currencyService.getCurrencyId("USDZ");
+        var accounts = userService.getUserReport(botUid).getAccounts();
+        if (usdzId != null && accounts != null && accounts.get(usdzId.intValue()) > 0) {
+            log.info("Bot (UID: {}) already funded, balance: {}", botUid, accounts.get(usdzId.intValue()));
+            return;
+        }
+
         // Fund the bot
         UserRequest fundRequest = UserRequest.builder()
                 .uid(botUid)
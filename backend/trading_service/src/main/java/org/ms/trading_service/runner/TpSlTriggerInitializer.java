@@ -0,0 +1,19 @@
+package org.ms.trading_service.runner;
+
+import lombok.RequiredArgsConstructor;
+import org.ms.trading_service.service.trigger.TpSlTriggerEngine;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+// TP/SL triggers are kept in memory only, rebuild them once the exchange and the order journal are up
+@Component
+@RequiredArgsConstructor
+public class TpSlTriggerInitializer implements CommandLineRunner {
+
+    private final TpSlTriggerEngine triggerEngine;
+
+    @Override
+    public void run(String... args) {
+        triggerEngine.restore();
+    }
+}
@@ -0,0 +1,117 @@
+package org.ms.trading_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.trading_service.config.WebSocketPublishConfig;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves WebSocket serialization and broker dispatch off the exchange results thread.
+ * Immediate messages are queued and sent as soon as the publisher thread gets to them.
+ * Conflated work keeps only the latest value per key and runs once per conflation interval,
+ * so a burst of book updates for one symbol costs one publish.
+ */
+@Service
+@Slf4j
+public class ConflatingPublisher {
+
+    private final SimpMessagingTemplate simpMessagingTemplate;
+    private final WebSocketPublishConfig config;
+
+    private final BlockingQueue<Runnable> immediate;
+    private final Map<String, Runnable> latest = new ConcurrentHashMap<>();
+
+    private final Counter sentCounter;
+    private final Counter conflatedCounter;
+    private final Counter droppedCounter;
+
+    private volatile boolean running;
+    private Thread publisherThread;
+
+    public ConflatingPublisher(SimpMessagingTemplate simpMessagingTemplate, WebSocketPublishConfig config,
+            MeterRegistry meterRegistry) {
+        this.simpMessagingTemplate = simpMessagingTemplate;
+        this.config = config;
+        this.immediate = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        Gauge.builder("trading.ws.backlog", immediate, BlockingQueue::size)
+                .description("Immediate WebSocket messages waiting to be sent")
+                .register(meterRegistry);
+        this.sentCounter = meterRegistry.counter("trading.ws.sent");
+        this.conflatedCounter = meterRegistry.counter("trading.ws.conflated");
+        this.droppedCounter = meterRegistry.counter("trading.ws.dropped");
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        publisherThread = new Thread(this::run, "ws-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        publisherThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public void send(String destination, Object payload) {
+        if (!immediate.offer(() -> simpMessagingTemplate.convertAndSend(destination, payload))) {
+            droppedCounter.increment();
+            log.warn("WebSocket publish queue full, dropped message for {}", destination);
+        }
+    }
+
+    // Replaces any pending work for the key; the task runs on the publisher thread at the next tick
+    public void conflate(String key, Runnable task) {
+        if (latest.put(key, task) != null) {
+            conflatedCounter.increment();
+        }
+    }
+
+    private void run() {
+        long intervalNs = TimeUnit.MILLISECONDS.toNanos(config.getConflationIntervalMs());
+        long nextFlush = System.nanoTime() + intervalNs;
+        while (running) {
+            try {
+                long waitNs = nextFlush - System.nanoTime();
+                Runnable task = waitNs > 0 ? immediate.poll(waitNs, TimeUnit.NANOSECONDS) : null;
+                if (task != null) {
+                    execute(task);
+                    continue;
+                }
+                for (String key : latest.keySet()) {
+                    Runnable conflated = latest.remove(key);
+                    if (conflated != null) {
+                        execute(conflated);
+                    }
+                }
+                nextFlush = System.nanoTime() + intervalNs;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            task.run();
+            sentCounter.increment();
+        } catch (Exception e) {
+            log.error("WebSocket publish failed", e);
+        }
+    }
+}
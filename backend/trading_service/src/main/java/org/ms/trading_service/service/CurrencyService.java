@@ -10,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class CurrencyService {
     private final CurrencyRepo currencyRepo;
+    private final SymbolRegistry symbolRegistry;
 
     public CurrencyEntity getOrCreateCurrency(String symbol, Long scale) {
         return currencyRepo.findBySymbol(symbol).orElseGet(() -> {
@@ -18,16 +19,20 @@ public class CurrencyService {
                     .scale(scale)
                     .build();
 
-            return currencyRepo.save(currencyEntity);
+            CurrencyEntity saved = currencyRepo.save(currencyEntity);
+            symbolRegistry.refresh();
+            return saved;
         });
 
     }
 
     public Long getCurrencyId(String symbol) {
-        return currencyRepo.findBySymbol(symbol).map(CurrencyEntity::getId).orElse(null);
+        CurrencyEntity currency = symbolRegistry.getCurrency(symbol);
+        return currency == null ? null : currency.getId();
     }
 
     public Long getScale(String symbol) {
-        return currencyRepo.findBySymbol(symbol).map(CurrencyEntity::getScale).orElse(null);
+        CurrencyEntity currency = symbolRegistry.getCurrency(symbol);
+        return currency == null ? null : currency.getScale();
     }
 }
@@ -0,0 +1,47 @@
+package org.ms.trading_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.ms.trading_service.config.ExchangePerformanceConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mirrors exchange-core's matching engine routing: a symbol is handled by matching engine
+ * (symbolId & (matchingEnginesNum - 1)). Pair ids are allocated sequentially, so consecutive pairs
+ * land on consecutive shards.
+ */
+@Component
+public class ExchangeShardLayout {
+
+    private final int matchingMask;
+    private final AtomicInteger[] symbolsPerMatchingShard;
+    private final Set<Integer> placedSymbols = ConcurrentHashMap.newKeySet();
+
+    public ExchangeShardLayout(ExchangePerformanceConfig performanceConfig, MeterRegistry meterRegistry) {
+        this.matchingMask = performanceConfig.getMatchingEnginesNum() - 1;
+        this.symbolsPerMatchingShard = new AtomicInteger[performanceConfig.getMatchingEnginesNum()];
+        for (int shard = 0; shard < symbolsPerMatchingShard.length; shard++) {
+            symbolsPerMatchingShard[shard] = new AtomicInteger();
+            Gauge.builder("trading.exchange.shard.symbols", symbolsPerMatchingShard[shard], AtomicInteger::get)
+                    .description("Symbols placed on a matching engine shard")
+                    .tag("shard", String.valueOf(shard))
+                    .register(meterRegistry);
+        }
+    }
+
+    public int matchingShardOf(int symbolId) {
+        return symbolId & matchingMask;
+    }
+
+    public int place(int symbolId) {
+        int shard = matchingShardOf(symbolId);
+        if (placedSymbols.add(symbolId)) {
+            symbolsPerMatchingShard[shard].incrementAndGet();
+        }
+        return shard;
+    }
+}
@@ -0,0 +1,114 @@
+package org.ms.trading_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.ms.trading_service.config.MarketDataStreamConfig;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.service.marketmaker.MarketMakerBot;
+import org.ms.trading_service.service.trigger.TpSlTriggerEngine;
+import org.ms.trading_service.utils.FixedPoint;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mark prices from the market_data feed. Every tick asks the {@link PositionBook} liquidation
+ * index for the positions the new mark has crossed and publishes those that were not already
+ * candidates on the previous tick to /topic/liquidations. Ticks older than
+ * {@code market-data.max-tick-age-ms}, such as stream entries replayed after a restart, are dropped.
+ */
+@Service
+@Slf4j
+public class MarkPriceEngine {
+
+    public record LiquidationCandidate(long uid, String symbol, String side, long liquidationPrice, long markPrice) {
+    }
+
+    private final SymbolRegistry symbolRegistry;
+    private final PositionBook positionBook;
+    private final ConflatingPublisher publisher;
+    private final TpSlTriggerEngine triggerEngine;
+    private final long maxTickAgeMs;
+    private final Counter candidatesCounter;
+    private final Counter staleCounter;
+    private final Timer scanTimer;
+
+    private final Map<Integer, Long> markPrices = new ConcurrentHashMap<>();
+    // Users flagged on the previous tick, per symbol; only touched by the market data thread
+    private final IntObjectHashMap<LongHashSet> flagged = new IntObjectHashMap<>();
+
+    public MarkPriceEngine(SymbolRegistry symbolRegistry, PositionBook positionBook, ConflatingPublisher publisher,
+            TpSlTriggerEngine triggerEngine, MarketDataStreamConfig marketDataConfig, MeterRegistry meterRegistry) {
+        this.symbolRegistry = symbolRegistry;
+        this.positionBook = positionBook;
+        this.publisher = publisher;
+        this.triggerEngine = triggerEngine;
+        this.maxTickAgeMs = marketDataConfig.getMaxTickAgeMs();
+        this.candidatesCounter = meterRegistry.counter("trading.liquidation.candidates");
+        this.staleCounter = meterRegistry.counter("trading.mark_price.stale");
+        this.scanTimer = Timer.builder("trading.liquidation.scan")
+                .description("Liquidation index lookup for one mark price tick")
+                .register(meterRegistry);
+    }
+
+    // Invoked by the market_data listener with the same map MarketMakerBot receives
+    public synchronized void onMarketUpdate(Map<String, Object> marketData) {
+        long receivedNanos = System.nanoTime();
+        Object instrument = marketData.get("INSTRUMENT");
+        Object price = marketData.get("PRICE");
+        if (instrument == null || !(price instanceof Number)) {
+            return;
+        }
+        // TIMESTAMP is the publish time, heartbeats refresh it without a new price
+        if (isStale(marketData.get("PRICE_LAST_UPDATE_TS"))) {
+            staleCounter.increment();
+            return;
+        }
+        String pairSymbol = MarketMakerBot.mapSymbol(instrument.toString());
+        PairEntity pair = pairSymbol == null ? null : symbolRegistry.getPair(pairSymbol);
+        if (pair == null) {
+            return;
+        }
+
+        int symbolId = pair.getId();
+        long markPrice = Math.round(((Number) price).doubleValue() * FixedPoint.pow10(FixedPoint.PRICE_SCALE));
+        markPrices.put(symbolId, markPrice);
+        triggerEngine.onPrice(symbolId, markPrice, receivedNanos);
+
+        List<PositionBook.PositionView> crossed = scanTimer.record(
+                () -> positionBook.liquidationCandidates(symbolId, markPrice));
+        LongHashSet previous = flagged.get(symbolId);
+        LongHashSet current = new LongHashSet(crossed.size());
+        for (PositionBook.PositionView position : crossed) {
+            current.add(position.uid());
+            if (previous != null && previous.contains(position.uid())) {
+                continue;
+            }
+            candidatesCounter.increment();
+            LiquidationCandidate candidate = new LiquidationCandidate(position.uid(), pairSymbol,
+                    position.direction() > 0 ? "LONG" : "SHORT", position.liquidationPrice(), markPrice);
+            log.warn("Liquidation candidate: {}", candidate);
+            publisher.send("/topic/liquidations", candidate);
+        }
+        flagged.put(symbolId, current);
+    }
+
+    // Epoch seconds of the last upstream tick; ticks without one are trusted
+    private boolean isStale(Object timestamp) {
+        if (maxTickAgeMs <= 0 || !(timestamp instanceof Number)) {
+            return false;
+        }
+        return System.currentTimeMillis() - ((Number) timestamp).longValue() * 1000 > maxTickAgeMs;
+    }
+
+    // 0 until the first tick for the symbol
+    public long markPrice(int symbolId) {
+        return markPrices.getOrDefault(symbolId, 0L);
+    }
+}
@@ -0,0 +1,180 @@
+package org.ms.trading_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.trading_service.config.IdGeneratorConfig;
+import org.ms.trading_service.config.MarketDataStreamConfig;
+import org.ms.trading_service.service.marketmaker.MarketMakerBot;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reads market data from the Redis stream written by market_price_service. Entries are read in
+ * batches through a consumer group and acknowledged with one XACK per batch, so a restarted
+ * instance first replays what it had received but not acknowledged, then continues with new entries.
+ *
+ * <p>Every instance needs every mark price, so each reads through its own group, named after the
+ * configured group and the instance's id generator node id. Consumers sharing a group would split
+ * the entries between them.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "market-data.transport", havingValue = "STREAM")
+public class MarketDataStreamConsumer {
+
+    private final MarketDataStreamConfig config;
+    private final String group;
+    private final StringRedisTemplate redisTemplate;
+    private final MarketMakerBot bot;
+    private final MarkPriceEngine markPriceEngine;
+    private final Counter consumedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread readerThread;
+
+    public MarketDataStreamConsumer(MarketDataStreamConfig config, IdGeneratorConfig idGeneratorConfig,
+            StringRedisTemplate redisTemplate, MarketMakerBot bot, MarkPriceEngine markPriceEngine,
+            MeterRegistry meterRegistry) {
+        this.config = config;
+        this.group = config.getGroup() + "-" + idGeneratorConfig.getNodeId();
+        this.redisTemplate = redisTemplate;
+        this.bot = bot;
+        this.markPriceEngine = markPriceEngine;
+        this.consumedCounter = meterRegistry.counter("trading.market_data.consumed");
+        this.failedCounter = meterRegistry.counter("trading.market_data.failed");
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        readerThread = new Thread(this::runReader, "market-data-stream");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        readerThread.join(config.getBlockMs() + TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void runReader() {
+        // The only consumer of its group
+        Consumer consumer = Consumer.from(group, group);
+        StreamReadOptions options = StreamReadOptions.empty()
+                .count(config.getBatchSize())
+                .block(Duration.ofMillis(config.getBlockMs()));
+        // Pending entries of this consumer first, then only new ones
+        ReadOffset offset = ReadOffset.from("0");
+        boolean groupReady = false;
+
+        while (running) {
+            try {
+                if (!groupReady) {
+                    createGroup();
+                    groupReady = true;
+                }
+                List<MapRecord<String, Object, Object>> records = read(consumer, options, offset);
+                if (records == null || records.isEmpty()) {
+                    offset = ReadOffset.lastConsumed();
+                    continue;
+                }
+                process(records);
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Market data stream read failed: {}", e.getMessage());
+                groupReady = false;
+                offset = ReadOffset.from("0");
+                sleepQuietly(config.getBlockMs());
+            }
+        }
+    }
+
+    // read() only comes with a generic varargs parameter; a single offset creates no heap pollution
+    @SuppressWarnings("unchecked")
+    private List<MapRecord<String, Object, Object>> read(Consumer consumer, StreamReadOptions options,
+            ReadOffset offset) {
+        return redisTemplate.opsForStream().read(consumer, options, StreamOffset.create(config.getStreamKey(), offset));
+    }
+
+    private void process(List<MapRecord<String, Object, Object>> records) {
+        RecordId[] ids = new RecordId[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            MapRecord<String, Object, Object> record = records.get(i);
+            ids[i] = record.getId();
+            try {
+                Map<String, Object> marketData = toMarketData(record.getValue());
+                markPriceEngine.onMarketUpdate(marketData);
+                bot.processMarketUpdate(marketData);
+                consumedCounter.increment();
+            } catch (Exception e) {
+                // A bad entry is acknowledged anyway, otherwise it would be replayed forever
+                failedCounter.increment();
+                log.error("Failed to process market data {}: {}", record.getId(), e.getMessage());
+            }
+        }
+        redisTemplate.opsForStream().acknowledge(config.getStreamKey(), group, ids);
+    }
+
+    private void createGroup() {
+        try {
+            redisTemplate.opsForStream().createGroup(config.getStreamKey(), ReadOffset.latest(), group);
+            log.info("Created consumer group {} on {}", group, config.getStreamKey());
+        } catch (RuntimeException e) {
+            // BUSYGROUP: the group survives restarts, which is the point
+            if (!isBusyGroup(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isBusyGroup(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("BUSYGROUP")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Same shape as the JSON published on the pub/sub channel
+    private static Map<String, Object> toMarketData(Map<Object, Object> fields) {
+        Map<String, Object> marketData = new HashMap<>(fields.size() * 2);
+        fields.forEach((field, value) -> {
+            String name = field.toString();
+            String text = value.toString();
+            marketData.put(name, switch (name) {
+                case "TYPE", "INSTRUMENT" -> text;
+                case "TIMESTAMP", "PRICE_LAST_UPDATE_TS" -> Long.valueOf(text);
+                default -> Double.valueOf(text);
+            });
+        });
+        return marketData;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.ms.trading_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.collections.impl.map.mutable.primitive.DoubleDoubleHashMap;
+import org.ms.trading_service.config.OrderBookStreamConfig;
+import org.ms.trading_service.dto.OrderBookDto;
+import org.ms.trading_service.dto.OrderBookUpdateDto;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams each symbol's order book on its own topic as sequence-numbered level diffs instead of
+ * re-sending the whole book on every update. The book is re-sent in full periodically, and
+ * {@link #snapshot(String)} serves the same state with its sequence for clients that resync.
+ */
+@Service
+@Slf4j
+public class OrderBookPublisher {
+
+    private final SimpMessagingTemplate simpMessagingTemplate;
+    private final OrderBookStreamConfig config;
+    private final Map<String, BookState> books = new ConcurrentHashMap<>();
+
+    private static final class BookState {
+        final String topic;
+        long sequence;
+        long timestamp;
+        DoubleDoubleHashMap asks = new DoubleDoubleHashMap();
+        DoubleDoubleHashMap bids = new DoubleDoubleHashMap();
+        // Receive the next update, then swap with the current side
+        DoubleDoubleHashMap spareAsks = new DoubleDoubleHashMap();
+        DoubleDoubleHashMap spareBids = new DoubleDoubleHashMap();
+
+        BookState(String topic) {
+            this.topic = topic;
+        }
+    }
+
+    public OrderBookPublisher(SimpMessagingTemplate simpMessagingTemplate, OrderBookStreamConfig config) {
+        this.simpMessagingTemplate = simpMessagingTemplate;
+        this.config = config;
+    }
+
+    public void publish(OrderBookDto orderBook) {
+        BookState book = books.computeIfAbsent(orderBook.getSymbol(), this::newBook);
+        // Sends happen under the book lock so deltas and snapshots of a symbol leave in sequence order
+        synchronized (book) {
+            List<double[]> askChanges = diff(book.asks, book.spareAsks, orderBook.getAsks());
+            List<double[]> bidChanges = diff(book.bids, book.spareBids, orderBook.getBids());
+            DoubleDoubleHashMap asks = book.asks;
+            book.asks = book.spareAsks;
+            book.spareAsks = asks;
+            DoubleDoubleHashMap bids = book.bids;
+            book.bids = book.spareBids;
+            book.spareBids = bids;
+            book.timestamp = orderBook.getTimestamp();
+            if (askChanges.isEmpty() && bidChanges.isEmpty()) {
+                return;
+            }
+            book.sequence++;
+            simpMessagingTemplate.convertAndSend(book.topic, OrderBookUpdateDto.builder()
+                    .type(OrderBookUpdateDto.DELTA)
+                    .symbol(orderBook.getSymbol())
+                    .sequence(book.sequence)
+                    .timestamp(book.timestamp)
+                    .asks(askChanges)
+                    .bids(bidChanges)
+                    .build());
+        }
+    }
+
+    public OrderBookUpdateDto snapshot(String symbol) {
+        BookState book = books.get(symbol);
+        if (book == null) {
+            return null;
+        }
+        synchronized (book) {
+            return snapshotOf(symbol, book);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order-book.snapshot-interval-ms:5000}")
+    public void publishSnapshots() {
+        books.forEach((symbol, book) -> {
+            synchronized (book) {
+                if (book.sequence > 0) {
+                    simpMessagingTemplate.convertAndSend(book.topic, snapshotOf(symbol, book));
+                }
+            }
+        });
+    }
+
+    private BookState newBook(String symbol) {
+        return new BookState(config.getTopicPattern().replace("{symbol}", symbol));
+    }
+
+    private static OrderBookUpdateDto snapshotOf(String symbol, BookState book) {
+        return OrderBookUpdateDto.builder()
+                .type(OrderBookUpdateDto.SNAPSHOT)
+                .symbol(symbol)
+                .sequence(book.sequence)
+                .timestamp(book.timestamp)
+                .asks(levelsOf(book.asks, true))
+                .bids(levelsOf(book.bids, false))
+                .build();
+    }
+
+    // Fills next with the new levels and returns [price, size] for every level that differs from current
+    private static List<double[]> diff(DoubleDoubleHashMap current, DoubleDoubleHashMap next,
+            List<OrderBookDto.OrderBookLevel> levels) {
+        next.clear();
+        if (levels != null) {
+            for (OrderBookDto.OrderBookLevel level : levels) {
+                next.addToValue(level.getPrice(), level.getSize());
+            }
+        }
+
+        List<double[]> changes = new ArrayList<>();
+        next.forEachKeyValue((price, size) -> {
+            if (!current.containsKey(price) || current.get(price) != size) {
+                changes.add(new double[] {price, size});
+            }
+        });
+        current.forEachKey(price -> {
+            if (!next.containsKey(price)) {
+                changes.add(new double[] {price, 0.0});
+            }
+        });
+        return changes;
+    }
+
+    private static List<double[]> levelsOf(DoubleDoubleHashMap side, boolean ascending) {
+        double[] prices = side.keysView().toSortedArray();
+        List<double[]> levels = new ArrayList<>(prices.length);
+        for (int i = 0; i < prices.length; i++) {
+            double price = prices[ascending ? i : prices.length - 1 - i];
+            levels.add(new double[] {price, side.get(price)});
+        }
+        return levels;
+    }
+}
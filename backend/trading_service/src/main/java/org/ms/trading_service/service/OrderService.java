@@ -6,19 +6,30 @@ import exchange.core2.core.common.OrderType;
 import exchange.core2.core.common.api.ApiCancelOrder;
 import exchange.core2.core.common.api.ApiPlaceOrder;
 import exchange.core2.core.common.cmd.CommandResultCode;
-import java.util.concurrent.ExecutionException;
 import lombok.RequiredArgsConstructor;
 import org.ms.trading_service.dto.request.OrderRequest;
 import org.ms.trading_service.dto.request.OrderRequestToExchange;
 import org.ms.trading_service.dto.response.CommonResponse;
+import org.ms.trading_service.dto.response.OrderResult;
 import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.entity.PairEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import org.ms.trading_service.grpc.client.UserGrpcClient;
+import org.ms.trading_service.service.persistence.OrderJournal;
+import org.ms.trading_service.service.persistence.TradePersistenceStage;
+import org.ms.trading_service.service.trigger.TpSlTriggerEngine;
+import org.ms.trading_service.utils.FixedPoint;
+import org.ms.trading_service.utils.SnowflakeIdGenerator;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -31,148 +42,133 @@ public class OrderService {
     private final CurrencyService currencyService;
     private final PairService pairService;
     private final org.ms.trading_service.repository.OrderRepository orderRepository;
+    private final ThreadPoolTaskExecutor requestExecutor;
+    private final ReservedMarginLedger marginLedger;
+    private final PositionBook positionBook;
+    private final PositionSeeder positionSeeder;
+    private final TradePersistenceStage tradePersistenceStage;
+    private final OrderJournal orderJournal;
+    private final TpSlTriggerEngine triggerEngine;
+    private final SnowflakeIdGenerator idGenerator;
+
+    private static final int EXACT_SCALE = 8;
+    private static final int SIZE_BASE_SCALE = 3;
+
+    // Balance and reserved margin of one sender, loaded once and shared by every order of a batch
+    private static class MarginContext {
+        Long uid;
+        long balance;
+        long reservedMargin;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
 
-    private Optional<?> preProcessOrderRequest(OrderRequest orderRequest)
-            throws ExecutionException, InterruptedException {
-        long orderId = System.currentTimeMillis();
-        Long uid = userGrpcClient.getUidByAddress(orderRequest.getSenderAddress());
-        log.info("User ID: {}", uid);
+    private static String marginKey(String senderAddress, String quoteCurrency) {
+        return senderAddress + "/" + quoteCurrency;
+    }
 
+    // The uid lookup blocks on gRPC (usually a cache hit), the balance comes from the exchange without holding a thread
+    private CompletableFuture<MarginContext> loadMarginContext(String senderAddress, String quoteCurrency) {
+        MarginContext margin = new MarginContext();
+        Long uid = userGrpcClient.getUidByAddress(senderAddress);
+        log.debug("User ID: {}", uid);
+        margin.uid = uid;
         if (uid == null) {
-            return Optional.of(CommonResponse.builder().success(false).message("User not found").build());
+            return CompletableFuture.completedFuture(margin);
         }
+        // After a snapshot restore, so triggers and liquidation see the positions this order adds to
+        positionSeeder.seed(uid);
+
+        int quoteCurrencyId = currencyService.getCurrencyId(quoteCurrency).intValue();
+        return userService.getUserReportAsync(uid).thenApply(userReport -> {
+            var accounts = userReport.getAccounts();
+            margin.balance = accounts != null && accounts.containsKey(quoteCurrencyId)
+                    ? accounts.get(quoteCurrencyId) : 0L;
+            // Margin of the user's PENDING orders, tracked incrementally instead of scanning them
+            margin.reservedMargin = marginLedger.reservedOf(uid);
+            return margin;
+        });
+    }
 
-        Integer pairId = pairService.getPairId(orderRequest.getPair());
-        BigDecimal entryPrice = new BigDecimal(orderRequest.getEntryPrice());
-        Long entryPriceScaled = entryPrice.multiply(new BigDecimal(10).pow(2)).longValue();
-        BigDecimal sizeQuote = new BigDecimal(orderRequest.getSizeQuote());
+    // One margin context per sender and quote currency of the requests, loaded concurrently
+    private CompletableFuture<Map<String, MarginContext>> loadMarginContexts(List<OrderRequest> orderRequests) {
+        Map<String, CompletableFuture<MarginContext>> loading = new HashMap<>();
+        for (OrderRequest orderRequest : orderRequests) {
+            Optional<PairEntity> pair = pairService.getPair(orderRequest.getPair());
+            if (pair.isEmpty()) {
+                continue;
+            }
+            String quoteCurrency = pair.get().getQuoteCurrency().getSymbol();
+            loading.computeIfAbsent(marginKey(orderRequest.getSenderAddress(), quoteCurrency),
+                    key -> loadMarginContext(orderRequest.getSenderAddress(), quoteCurrency));
+        }
+        return CompletableFuture.allOf(loading.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<String, MarginContext> marginContexts = new HashMap<>();
+                    loading.forEach((key, margin) -> marginContexts.put(key, margin.join()));
+                    return marginContexts;
+                });
+    }
+
+    private Optional<?> preProcessOrderRequest(OrderRequest orderRequest, Map<String, MarginContext> marginContexts) {
+        long orderId = idGenerator.nextId();
+
+        Optional<PairEntity> pair = pairService.getPair(orderRequest.getPair());
+        if (pair.isEmpty()) {
+            return Optional.of(CommonResponse.builder().success(false).message("Pair not found").build());
+        }
+        Integer pairId = pair.get().getId();
+        Long entryPriceScaled = FixedPoint.parse(orderRequest.getEntryPrice(), FixedPoint.PRICE_SCALE);
 
         Long tpPriceScaled = null;
         if (orderRequest.getTpPrice() != null) {
-            BigDecimal tpPrice = new BigDecimal(orderRequest.getTpPrice());
-            tpPriceScaled = tpPrice.multiply(new BigDecimal(10).pow(2)).longValue();
+            tpPriceScaled = FixedPoint.parse(orderRequest.getTpPrice(), FixedPoint.PRICE_SCALE);
         }
 
         Long slPriceScaled = null;
         if (orderRequest.getSlPrice() != null) {
-            BigDecimal slPrice = new BigDecimal(orderRequest.getSlPrice());
-            slPriceScaled = slPrice.multiply(new BigDecimal(10).pow(2)).longValue();
+            slPriceScaled = FixedPoint.parse(orderRequest.getSlPrice(), FixedPoint.PRICE_SCALE);
         }
 
+        // Quote size and price at full precision for the margin and size divisions below
+        long sizeQuoteExact = FixedPoint.parse(orderRequest.getSizeQuote(), EXACT_SCALE);
+        long entryPriceExact = FixedPoint.parse(orderRequest.getEntryPrice(), EXACT_SCALE);
+
         // margin
-        Long requiredMargin = sizeQuote.multiply(new BigDecimal(10).pow(2))
-                .divide(new BigDecimal(orderRequest.getLeverage()), 0, RoundingMode.CEILING).longValue();
+        Long requiredMargin = ceilDiv(sizeQuoteExact,
+                orderRequest.getLeverage() * FixedPoint.pow10(EXACT_SCALE - FixedPoint.PRICE_SCALE));
 
-        Long quoteCurrencyId = currencyService.getCurrencyId(orderRequest.getPair().split("-")[1]);
-        var userReport = userService.getUserReport(uid);
-        var accounts = userReport.getAccounts();
+        Long lotSizeScaled = pair.get().getLotSizeScale();
+        String quoteCurrency = pair.get().getQuoteCurrency().getSymbol();
+        MarginContext margin = marginContexts.get(marginKey(orderRequest.getSenderAddress(), quoteCurrency));
+        Long uid = margin == null ? null : margin.uid;
 
-        Long balance = 0L;
-        if (accounts != null && accounts.containsKey(quoteCurrencyId.intValue())) {
-            balance = accounts.get(quoteCurrencyId.intValue());
+        if (uid == null) {
+            return Optional.of(CommonResponse.builder().success(false).message("User not found").build());
         }
 
-        // Calculate reserved margin from pending orders
-        java.util.List<OrderEntity> pendingOrders = orderRepository.findByUidAndStatus(uid, "PENDING");
-        Long reservedMargin = 0L;
-        Long lotSizeScaled = pairService.getLotSizeScale(orderRequest.getPair());
-        for (OrderEntity order : pendingOrders) {
-            // For pending orders, we need to calculate required margin.
-            // Margin = (SizeBase * Price) / Leverage? No, simpler to use the SizeQuote /
-            // Leverage logic if stored.
-            // But we store SizeBase. Let's approximate: (SizeBase * Price) / Leverage.
-            // OrderEntity stores price scaled (long) and sizeBase (long).
-            // However, strictly speaking, the saved order might not store the original
-            // "quote size".
-            // Let's re-calculate margin based on entity fields:
-            // Margin = (Price * SizeBase) / Leverage
-
-            // Wait, standard logic:
-            // sizeQuote = (sizeBase * price)
-            // margin = sizeQuote / leverage
-
-            // Note: Entity price is scaled (e.g. 10000 for 100.00), sizeBase is scaled
-            // (e.g. 1000 for 1.0)
-            // We need to be careful with scaling.
-            // Price: 10^2 scale (usually) or defined by currency.
-            // SizeBase: usually 10^3 scale? No, verify below.
-
-            // Let's look at OrderService save logic:
-            // price = entryPriceScaled (10^2)
-            // sizeBase = calculated from input
-
-            // Actually, it might be safer to trust the wallet balance if the Core deducts
-            // on ORDER PLACEMENT.
-            // Does the Core deduct balance for OPEN orders?
-            // If YES, then 'balance' from accounts map ALREADY includes the deduction.
-            // If NO (e.g. it only deducts on FILL), then we must do this check.
-            // Assuming NO for safety or "PENDING" state implies it hasn't reached Core
-            // matching yet.
-
-            // Scaling: Price(10^2) * Base(10^? Lot?)
-            // This might be complicated to get exact.
-
-            // SIMPLIFICATION: If we just sum up the 'margin' if we stored it? We don't.
-            // Alternative: roughly (Price * Base) / Leverage / ScalingFactor.
-
-            // For now, let's assume the Core DOES NOT reflect 'PENDING' orders in the
-            // account balance
-            // because 'PENDING' in our DB means "submitted to async queue but not confirmed
-            // processed".
-
-            // Let's use a safe approximation or look at how sizeBase is calculated:
-            // sizeBase = sizeQuote / price ...
-            // so sizeBase * price ~= sizeQuote.
-
-            BigDecimal p = new BigDecimal(order.getPrice());
-            BigDecimal s = new BigDecimal(order.getSizeBase());
-            BigDecimal val = p.multiply(s);
-            // We need to normalize this value.
-            // entryPriceScaled was * 10^2.
-            // sizeBase was * 10^3 / lotScaled(1).
-            // So val is * 10^5.
-
-            // We want "Quote Amount" scaled by Currency Scale (likely 10^2 for USDT?).
-            // Only if we know currency scale.
-
-            // Let's rely on the input 'requiredMargin' calc logic:
-            // requiredMargin = sizeQuote * 10^2 / lev.
-
-            // To reverse engineer from stored fields:
-            // Value = Price * Size.
-            // Margin = Value / Leverage.
-
-            // Let's do: margin = (order.getPrice() * order.getSizeBase()) /
-            // order.getLeverage() / 1000L;
-            // Why 1000L? Price is *100, Size is *1000. Total *100000.
-            // We want result scaled to *100 (Currency Scale).
-            // So divide by 1000.
-
-            // Calculate margin for each pending order
-            // Margin = (Price * SizeBase) / Leverage / ScalingFactor
-            // Price is scaled by 10^2
-            // SizeBase is scaled by 10^3 (usually) but defined by sizePrecision
-            Long m = val.divide(new BigDecimal(order.getLeverage()), 0, RoundingMode.CEILING)
-                    .divide(new BigDecimal(lotSizeScaled), 0, RoundingMode.CEILING).longValue();
-            reservedMargin += m;
-        }
+        Long balance = margin.balance;
+        Long reservedMargin = margin.reservedMargin;
 
-        log.info("Balance: {}, Reserved: {}, Required: {}", balance, reservedMargin, requiredMargin);
+        log.debug("Balance: {}, Reserved: {}, Required: {}", balance, reservedMargin, requiredMargin);
 
         if (balance < (requiredMargin + reservedMargin)) {
             return Optional.of(CommonResponse.builder().success(false)
                     .message("Insufficient margin (available: " + (balance - reservedMargin) + ")").build());
         }
+        margin.reservedMargin += requiredMargin;
 
-        long sizeBase = sizeQuote.divide(entryPrice, 3, RoundingMode.DOWN).multiply(new BigDecimal(lotSizeScaled))
-                .longValue();
+        // Base size rounded down to 3 decimals, then expressed in lots
+        long sizeBase = Math.multiplyExact(sizeQuoteExact, FixedPoint.pow10(SIZE_BASE_SCALE)) / entryPriceExact
+                * lotSizeScaled / FixedPoint.pow10(SIZE_BASE_SCALE);
 
-        // Save order to DB
+        // Journaled locally, the DB row is written behind by the journal drainer
         org.ms.trading_service.entity.OrderEntity orderEntity = org.ms.trading_service.entity.OrderEntity.builder()
                 .orderId(orderId)
                 .uid(uid)
-                .symbol(pairService.getPair(orderRequest.getPair())
-                        .orElseThrow(() -> new RuntimeException("Pair not found")))
+                .symbol(pair.get())
                 .type(orderRequest.getType())
                 .side(orderRequest.getSide())
                 .price(entryPriceScaled)
@@ -184,7 +180,12 @@ public class OrderService {
                 .createdAt(new java.util.Date())
                 .updatedAt(new java.util.Date())
                 .build();
-        orderRepository.save(orderEntity);
+        orderJournal.append(orderEntity);
+        marginLedger.reserve(orderId, uid,
+                ReservedMarginLedger.marginOf(entryPriceScaled, sizeBase, orderRequest.getLeverage(), lotSizeScaled));
+        positionBook.registerOrder(orderId, orderRequest.getLeverage());
+        triggerEngine.register(orderId, uid, pair.get(), orderRequest.getSide(), orderRequest.getLeverage(),
+                tpPriceScaled, slPriceScaled);
 
         return Optional.of(OrderRequestToExchange.builder()
                 .orderId(orderId)
@@ -197,15 +198,7 @@ public class OrderService {
                 .build());
     }
 
-    public CommonResponse<?> order(OrderRequest orderRequest)
-            throws ExecutionException, InterruptedException {
-
-        Optional<?> preProcessOrderRequest = preProcessOrderRequest(orderRequest);
-        if (preProcessOrderRequest.get() instanceof CommonResponse<?>) {
-            return (CommonResponse<?>) preProcessOrderRequest.get();
-        }
-
-        OrderRequestToExchange orderRequestToExchange = (OrderRequestToExchange) preProcessOrderRequest.get();
+    private CompletableFuture<CommandResultCode> submitOrder(OrderRequestToExchange orderRequestToExchange) {
         ApiPlaceOrder apiPlaceOrder = ApiPlaceOrder.builder()
                 .orderId(orderRequestToExchange.getOrderId())
                 .uid(orderRequestToExchange.getUid())
@@ -216,33 +209,142 @@ public class OrderService {
                 .size(orderRequestToExchange.getSizeBase())
                 .build();
 
-        CompletableFuture<CommandResultCode> future = exchangeApi.submitCommandAsync(apiPlaceOrder);
-        CommandResultCode code = future.get();
-
-        return CommonResponse.builder().success(code == CommandResultCode.SUCCESS).message(code.name()).build();
+        return exchangeApi.submitCommandAsync(apiPlaceOrder).thenApply(code -> {
+            if (code != CommandResultCode.SUCCESS) {
+                // Refused by the core, the order never rests so its margin is free again
+                marginLedger.release(orderRequestToExchange.getOrderId());
+                positionBook.forgetOrder(orderRequestToExchange.getOrderId());
+                triggerEngine.forget(orderRequestToExchange.getOrderId());
+                tradePersistenceStage.enqueueReject(orderRequestToExchange.getOrderId());
+            }
+            return code;
+        });
     }
 
-    public CommonResponse<?> cancelOrder(Long orderId) throws ExecutionException, InterruptedException {
-        Optional<OrderEntity> orderOpt = orderRepository.findById(orderId);
-        if (orderOpt.isEmpty()) {
-            return CommonResponse.builder().success(false).message("Order not found").build();
-        }
-
-        OrderEntity order = orderOpt.get();
-        ApiCancelOrder apiCancelOrder = ApiCancelOrder.builder()
-                .orderId(order.getOrderId())
-                .uid(order.getUid())
-                .symbol(order.getSymbol().getId())
-                .build();
+    /**
+     * User lookup, margin check and journaling run on the request executor; the balance query and
+     * the exchange round trip hold no thread. Completes on the exchange results thread.
+     */
+    public CompletableFuture<CommonResponse<?>> order(OrderRequest orderRequest) {
+        return CompletableFuture.supplyAsync(() -> loadMarginContexts(List.of(orderRequest)), requestExecutor)
+                .thenCompose(Function.identity())
+                .thenApplyAsync(marginContexts -> preProcessOrderRequest(orderRequest, marginContexts), requestExecutor)
+                .thenCompose(preProcessOrderRequest -> {
+                    if (preProcessOrderRequest.get() instanceof CommonResponse<?> rejected) {
+                        return CompletableFuture.completedFuture(rejected);
+                    }
+
+                    OrderRequestToExchange orderRequestToExchange = (OrderRequestToExchange) preProcessOrderRequest.get();
+                    return submitOrder(orderRequestToExchange).thenApply(code -> CommonResponse.builder()
+                            .success(code == CommandResultCode.SUCCESS).message(code.name()).build());
+                });
+    }
 
-        CompletableFuture<CommandResultCode> future = exchangeApi.submitCommandAsync(apiCancelOrder);
-        CommandResultCode code = future.get();
+    /**
+     * Validates all orders against one margin snapshot per sender, then publishes every accepted
+     * order to the exchange without waiting in between. The returned future completes once all
+     * exchange results are in, with one result per request in input order. Cancelling it before the
+     * batch reaches the exchange skips the submission; orders already submitted stay live.
+     */
+    public CompletableFuture<List<OrderResult>> orderBatch(List<OrderRequest> orderRequests) {
+        CompletableFuture<List<OrderResult>> batch = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> {
+                    // One RPC for all senders not cached yet, the per-sender lookups then hit the cache
+                    userGrpcClient.getUidsByAddresses(
+                            orderRequests.stream().map(OrderRequest::getSenderAddress).toList());
+                    return loadMarginContexts(orderRequests);
+                }, requestExecutor)
+                .thenCompose(Function.identity())
+                .thenApplyAsync(marginContexts -> {
+                    if (batch.isCancelled()) {
+                        throw new CancellationException("Batch cancelled before submission");
+                    }
+                    return submitBatch(orderRequests, marginContexts);
+                }, requestExecutor)
+                .thenCompose(futures -> CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                        .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList()))
+                .whenComplete((results, error) -> {
+                    if (error != null) {
+                        batch.completeExceptionally(error);
+                    } else {
+                        batch.complete(results);
+                    }
+                });
+        return batch;
+    }
 
-        if (code == CommandResultCode.SUCCESS) {
-            order.setStatus("CANCELLED");
-            orderRepository.save(order);
+    private List<CompletableFuture<OrderResult>> submitBatch(List<OrderRequest> orderRequests,
+            Map<String, MarginContext> marginContexts) {
+        List<CompletableFuture<OrderResult>> futures = new ArrayList<>(orderRequests.size());
+
+        for (int i = 0; i < orderRequests.size(); i++) {
+            final int index = i;
+            Optional<?> preProcessOrderRequest;
+            try {
+                preProcessOrderRequest = preProcessOrderRequest(orderRequests.get(i), marginContexts);
+            } catch (RuntimeException e) {
+                // Earlier orders of the batch are already live, so only this one fails
+                log.warn("Order {} of batch rejected: {}", index, e.toString());
+                futures.add(CompletableFuture.completedFuture(OrderResult.builder()
+                        .index(index)
+                        .success(false)
+                        .message("Invalid order: " + e.getMessage())
+                        .build()));
+                continue;
+            }
+            if (preProcessOrderRequest.get() instanceof CommonResponse<?> rejected) {
+                futures.add(CompletableFuture.completedFuture(OrderResult.builder()
+                        .index(index)
+                        .success(false)
+                        .message(rejected.getMessage())
+                        .build()));
+                continue;
+            }
+
+            OrderRequestToExchange orderRequestToExchange = (OrderRequestToExchange) preProcessOrderRequest.get();
+            futures.add(submitOrder(orderRequestToExchange).thenApply(code -> OrderResult.builder()
+                    .index(index)
+                    .orderId(orderRequestToExchange.getOrderId())
+                    .success(code == CommandResultCode.SUCCESS)
+                    .message(code.name())
+                    .build()));
         }
+        return futures;
+    }
 
-        return CommonResponse.builder().success(code == CommandResultCode.SUCCESS).message(code.name()).build();
+    /**
+     * Journal drain, lookup and the status update run on the request executor; no thread waits for
+     * the exchange in between.
+     */
+    public CompletableFuture<CommonResponse<?>> cancelOrder(Long orderId) {
+        return CompletableFuture.supplyAsync(() -> {
+                    // The order may have been placed moments ago and still sit in the journal
+                    orderJournal.drain();
+                    return orderRepository.findById(orderId);
+                }, requestExecutor)
+                .thenCompose(orderOpt -> {
+                    if (orderOpt.isEmpty()) {
+                        return CompletableFuture.completedFuture(
+                                CommonResponse.builder().success(false).message("Order not found").build());
+                    }
+
+                    OrderEntity order = orderOpt.get();
+                    ApiCancelOrder apiCancelOrder = ApiCancelOrder.builder()
+                            .orderId(order.getOrderId())
+                            .uid(order.getUid())
+                            .symbol(order.getSymbol().getId())
+                            .build();
+                    return exchangeApi.submitCommandAsync(apiCancelOrder).thenApplyAsync(code -> {
+                        if (code == CommandResultCode.SUCCESS) {
+                            order.setStatus("CANCELLED");
+                            orderRepository.save(order);
+                            marginLedger.release(order.getOrderId());
+                            positionBook.forgetOrder(order.getOrderId());
+                            triggerEngine.forget(order.getOrderId());
+                        }
+                        return CommonResponse.builder().success(code == CommandResultCode.SUCCESS)
+                                .message(code.name()).build();
+                    }, requestExecutor);
+                });
     }
 }
\ No newline at end of file
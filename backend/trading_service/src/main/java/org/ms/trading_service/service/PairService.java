@@ -25,12 +25,16 @@ public class PairService {
     private final ExchangeApi exchangeApi;
     private final PairRepo pairRepo;
     private final CurrencyService currencyService;
+    private final ExchangeShardLayout shardLayout;
+    private final SymbolRegistry symbolRegistry;
 
     public PairService(@org.springframework.context.annotation.Lazy ExchangeApi exchangeApi, PairRepo pairRepo,
-            CurrencyService currencyService) {
+            CurrencyService currencyService, ExchangeShardLayout shardLayout, SymbolRegistry symbolRegistry) {
         this.exchangeApi = exchangeApi;
         this.pairRepo = pairRepo;
         this.currencyService = currencyService;
+        this.shardLayout = shardLayout;
+        this.symbolRegistry = symbolRegistry;
     }
 
     public boolean addPairToExchange(PairEntity pairEntity)
@@ -51,7 +55,13 @@ public class PairService {
         CommandResultCode code = future.get();
 
         if (code == CommandResultCode.SUCCESS) {
-            log.info("Successfully added pair: {}", pairEntity.getPairSymbol());
+            log.info("Successfully added pair: {} on matching shard {}", pairEntity.getPairSymbol(),
+                    shardLayout.place(pairEntity.getId()));
+            return true;
+        } else if (code == CommandResultCode.SYMBOL_MGMT_SYMBOL_ALREADY_EXISTS) {
+            // Restored from snapshot/journal
+            log.info("Pair {} already exists in Core on matching shard {}", pairEntity.getPairSymbol(),
+                    shardLayout.place(pairEntity.getId()));
             return true;
         } else {
             log.error("Failed to add pair: {}. Error code: {}", pairEntity.getPairSymbol(), code);
@@ -86,6 +96,8 @@ public class PairService {
                 .build();
 
         pairRepo.save(pairEntity);
+        // Before the pair reaches the exchange, so its events can already be resolved
+        symbolRegistry.refresh();
 
         return Optional.of(pairEntity);
     }
@@ -116,22 +128,26 @@ public class PairService {
     }
 
     public Long getLotSizeScale(Long pairId) {
-        return pairRepo.findById(pairId).get().getLotSizeScale();
+        PairEntity pair = symbolRegistry.getPair(pairId.intValue());
+        return pair == null ? null : pair.getLotSizeScale();
     }
 
     public Long getLotSizeScale(String pairSymbol) {
-        return pairRepo.findByPairSymbol(pairSymbol).getLotSizeScale();
+        PairEntity pair = symbolRegistry.getPair(pairSymbol);
+        return pair == null ? null : pair.getLotSizeScale();
     }
 
     public Integer getPairId(String pairSymbol) {
-        return pairRepo.findByPairSymbol(pairSymbol).getId();
+        PairEntity pair = symbolRegistry.getPair(pairSymbol);
+        return pair == null ? null : pair.getId();
     }
 
     public String getPairSymbol(Integer pairId) {
-        return pairRepo.findById(Long.valueOf(pairId)).get().getPairSymbol();
+        PairEntity pair = symbolRegistry.getPair(pairId);
+        return pair == null ? null : pair.getPairSymbol();
     }
 
     public Optional<PairEntity> getPair(String pairSymbol) {
-        return Optional.ofNullable(pairRepo.findByPairSymbol(pairSymbol));
+        return Optional.ofNullable(symbolRegistry.getPair(pairSymbol));
     }
 }
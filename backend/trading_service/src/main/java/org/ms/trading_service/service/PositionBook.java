@@ -0,0 +1,329 @@
+package org.ms.trading_service.service;
+
+import exchange.core2.core.IEventsHandler;
+import exchange.core2.core.common.OrderAction;
+import exchange.core2.core.common.PositionDirection;
+import exchange.core2.core.common.api.reports.SingleUserReportResult;
+import exchange.core2.core.common.config.InitialStateConfiguration;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.collections.impl.map.mutable.primitive.IntLongHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongIntHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Read model of open positions per user, maintained from exchange trade events so position
+ * queries never go through the exchange pipeline. Positions are netted per symbol the same way
+ * exchange-core does it: a fill against the open direction closes volume, the rest opens.
+ *
+ * <p>Margin is tracked in price-times-lots units from the leverage of the orders that built the
+ * position. Order leverage is registered when an order is placed and forgotten once it completes;
+ * fills of an unknown order keep the position's current leverage (1 for a new position).
+ *
+ * <p>After a clean start or a journal replay every trade passes through here, so the book is
+ * complete. When the exchange was restored from a snapshot, a user's positions are unknown until
+ * {@link #seed} loads them from one risk report, requested by {@link PositionSeeder} on the user's
+ * first fill, order or query. Fills of an unseeded user are buffered and the ones the report did
+ * not see yet are applied on top of it.
+ */
+@Component
+@Slf4j
+public class PositionBook {
+
+    private static final class Position {
+        int direction;
+        long openVolume;
+        long openPriceSum;
+        long margin;
+        // Key of this position in the liquidation index
+        long indexedLiquidationPrice;
+    }
+
+    // Open positions of one symbol by liquidation price; a long is hit when the mark falls to its
+    // price, a short when the mark rises to it
+    private static final class LiquidationIndex {
+        final TreeMap<Long, LongHashSet> longs = new TreeMap<>();
+        final TreeMap<Long, LongHashSet> shorts = new TreeMap<>();
+
+        TreeMap<Long, LongHashSet> side(int direction) {
+            return direction > 0 ? longs : shorts;
+        }
+    }
+
+    /**
+     * Entry and liquidation prices are in exchange price units, margin in price units times lots.
+     */
+    public record PositionView(long uid, int symbolId, int direction, long openVolume, long openPriceSum,
+            long margin) {
+
+        public long entryPrice() {
+            return openPriceSum / openVolume;
+        }
+
+        public long liquidationPrice() {
+            return PositionBook.liquidationPrice(direction, openVolume, openPriceSum, margin);
+        }
+
+        public long unrealizedPnl(long markPrice) {
+            return (markPrice - entryPrice()) * openVolume * direction;
+        }
+    }
+
+    private record BufferedFill(long sequence, int symbolId, int direction, long volume, long price,
+            int leverage) {
+    }
+
+    private final boolean complete;
+    // Trade events seen so far; a seeding report is taken at one of these positions
+    private long tradeSequence;
+    private final LongObjectHashMap<List<BufferedFill>> unseededFills = new LongObjectHashMap<>();
+    // Unseeded users whose fills are buffered, not yet handed to the seeder
+    private final LongHashSet seedRequests = new LongHashSet();
+    private final LongObjectHashMap<IntObjectHashMap<Position>> positionsByUid = new LongObjectHashMap<>();
+    private final LongIntHashMap leverageByOrder = new LongIntHashMap();
+    private final IntLongHashMap lastTradePrice = new IntLongHashMap();
+    private final IntObjectHashMap<LiquidationIndex> liquidationIndex = new IntObjectHashMap<>();
+
+    public PositionBook(InitialStateConfiguration initialStateConfiguration, MeterRegistry meterRegistry) {
+        this.complete = !initialStateConfiguration.fromSnapshot();
+        Gauge.builder("trading.positions.users", this, PositionBook::userCount)
+                .description("Users held by the in-memory position book")
+                .register(meterRegistry);
+    }
+
+    public synchronized void registerOrder(long orderId, long leverage) {
+        leverageByOrder.put(orderId, (int) leverage);
+    }
+
+    // Cancelled or rejected before completing
+    public synchronized void forgetOrder(long orderId) {
+        leverageByOrder.remove(orderId);
+    }
+
+    public synchronized void onTrade(IEventsHandler.TradeEvent event) {
+        tradeSequence++;
+        if (event.trades == null) {
+            return;
+        }
+        int takerDirection = event.takerAction == OrderAction.BID ? 1 : -1;
+        for (IEventsHandler.Trade trade : event.trades) {
+            apply(event.takerUid, event.symbol, takerDirection, trade.volume, trade.price,
+                    leverageByOrder.get(event.takerOrderId));
+            apply(trade.makerUid, event.symbol, -takerDirection, trade.volume, trade.price,
+                    leverageByOrder.get(trade.makerOrderId));
+            if (trade.makerOrderCompleted) {
+                leverageByOrder.remove(trade.makerOrderId);
+            }
+            lastTradePrice.put(event.symbol, trade.price);
+        }
+        if (event.takeOrderCompleted) {
+            leverageByOrder.remove(event.takerOrderId);
+        }
+    }
+
+    public synchronized boolean needsSeed(long uid) {
+        return !complete && !positionsByUid.containsKey(uid);
+    }
+
+    // Read on the exchange results thread while a report is produced, so it marks the report's position
+    public synchronized long tradeSequence() {
+        return tradeSequence;
+    }
+
+    // Unseeded users that received fills since the last call
+    public synchronized long[] takeSeedRequests() {
+        long[] uids = seedRequests.toArray();
+        seedRequests.clear();
+        return uids;
+    }
+
+    // The report could not be taken, ask again on the user's next fill
+    public synchronized void seedFailed(long uid) {
+        if (unseededFills.containsKey(uid)) {
+            seedRequests.add(uid);
+        }
+    }
+
+    /**
+     * Loads a user's positions from a risk report taken after {@code reportSequence} trade events,
+     * then applies the buffered fills that came later. Leverage is not in the report, so seeded
+     * positions are margined at leverage 1.
+     */
+    public synchronized void seed(long uid, SingleUserReportResult report, long reportSequence) {
+        if (positionsByUid.containsKey(uid)) {
+            return;
+        }
+        IntObjectHashMap<Position> positions = new IntObjectHashMap<>();
+        if (report != null && report.getPositions() != null) {
+            report.getPositions().forEachKeyValue((symbolId, record) -> {
+                if (record.direction == PositionDirection.EMPTY || record.openVolume == 0) {
+                    return;
+                }
+                Position position = new Position();
+                position.direction = record.direction == PositionDirection.LONG ? 1 : -1;
+                position.openVolume = record.openVolume;
+                position.openPriceSum = record.openPriceSum;
+                position.margin = record.openPriceSum;
+                positions.put(symbolId, position);
+                index(uid, symbolId, position);
+            });
+        }
+        positionsByUid.put(uid, positions);
+
+        seedRequests.remove(uid);
+        List<BufferedFill> fills = unseededFills.remove(uid);
+        if (fills != null) {
+            for (BufferedFill fill : fills) {
+                if (fill.sequence() > reportSequence) {
+                    apply(uid, fill.symbolId(), fill.direction(), fill.volume(), fill.price(), fill.leverage());
+                }
+            }
+        }
+    }
+
+    public synchronized List<PositionView> positionsOf(long uid) {
+        IntObjectHashMap<Position> positions = positionsByUid.get(uid);
+        if (positions == null) {
+            return List.of();
+        }
+        List<PositionView> views = new ArrayList<>(positions.size());
+        positions.forEachKeyValue((symbolId, position) -> views.add(view(uid, symbolId, position)));
+        return views;
+    }
+
+    // Open volume of the user's position in this direction, 0 when flat or held the other way
+    public synchronized long openVolume(long uid, int symbolId, int direction) {
+        IntObjectHashMap<Position> positions = positionsByUid.get(uid);
+        Position position = positions == null ? null : positions.get(symbolId);
+        return position == null || position.direction != direction ? 0 : position.openVolume;
+    }
+
+    /**
+     * Positions of a symbol whose liquidation price the mark price has reached, found through the
+     * liquidation index in O(log n + k) for k candidates.
+     */
+    public synchronized List<PositionView> liquidationCandidates(int symbolId, long markPrice) {
+        LiquidationIndex index = liquidationIndex.get(symbolId);
+        if (index == null) {
+            return List.of();
+        }
+        List<PositionView> candidates = new ArrayList<>();
+        collect(index.longs.tailMap(markPrice, true), symbolId, candidates);
+        collect(index.shorts.headMap(markPrice, true), symbolId, candidates);
+        return candidates;
+    }
+
+    private void collect(Map<Long, LongHashSet> crossed, int symbolId, List<PositionView> candidates) {
+        for (LongHashSet uids : crossed.values()) {
+            uids.forEach(uid -> candidates.add(view(uid, symbolId, positionsByUid.get(uid).get(symbolId))));
+        }
+    }
+
+    private static PositionView view(long uid, int symbolId, Position position) {
+        return new PositionView(uid, symbolId, position.direction, position.openVolume, position.openPriceSum,
+                position.margin);
+    }
+
+    // Price at which the unrealized loss consumes the position margin
+    static long liquidationPrice(int direction, long openVolume, long openPriceSum, long margin) {
+        long entryPrice = openPriceSum / openVolume;
+        long buffer = margin / openVolume;
+        return direction > 0 ? Math.max(0, entryPrice - buffer) : entryPrice + buffer;
+    }
+
+    private void index(long uid, int symbolId, Position position) {
+        position.indexedLiquidationPrice = liquidationPrice(position.direction, position.openVolume,
+                position.openPriceSum, position.margin);
+        liquidationIndex.getIfAbsentPut(symbolId, LiquidationIndex::new).side(position.direction)
+                .computeIfAbsent(position.indexedLiquidationPrice, price -> new LongHashSet())
+                .add(uid);
+    }
+
+    private void unindex(long uid, int symbolId, Position position) {
+        TreeMap<Long, LongHashSet> side = liquidationIndex.get(symbolId).side(position.direction);
+        LongHashSet uids = side.get(position.indexedLiquidationPrice);
+        uids.remove(uid);
+        if (uids.isEmpty()) {
+            side.remove(position.indexedLiquidationPrice);
+        }
+    }
+
+    // 0 until the symbol has traded
+    public synchronized long lastTradePrice(int symbolId) {
+        return lastTradePrice.get(symbolId);
+    }
+
+    private synchronized int userCount() {
+        return positionsByUid.size();
+    }
+
+    private void apply(long uid, int symbolId, int direction, long volume, long price, int leverage) {
+        IntObjectHashMap<Position> positions = positionsByUid.get(uid);
+        if (positions == null) {
+            if (!complete) {
+                // Not seeded yet, kept until the report shows whether it already includes this fill
+                List<BufferedFill> fills = unseededFills.get(uid);
+                if (fills == null) {
+                    fills = new ArrayList<>();
+                    unseededFills.put(uid, fills);
+                    seedRequests.add(uid);
+                }
+                fills.add(new BufferedFill(tradeSequence, symbolId, direction, volume, price, leverage));
+                return;
+            }
+            positions = new IntObjectHashMap<>();
+            positionsByUid.put(uid, positions);
+        }
+        Position position = positions.getIfAbsentPut(symbolId, Position::new);
+        if (position.openVolume > 0) {
+            unindex(uid, symbolId, position);
+        }
+
+        long remaining = volume;
+        if (position.direction == -direction) {
+            long closed = Math.min(position.openVolume, remaining);
+            long kept = position.openVolume - closed;
+            position.openPriceSum = scale(position.openPriceSum, kept, position.openVolume);
+            position.margin = scale(position.margin, kept, position.openVolume);
+            position.openVolume = kept;
+            remaining -= closed;
+        }
+        if (remaining > 0) {
+            int effectiveLeverage = leverage > 0 ? leverage
+                    : position.margin > 0 ? (int) Math.max(1, position.openPriceSum / position.margin) : 1;
+            position.direction = direction;
+            position.openVolume += remaining;
+            position.openPriceSum += price * remaining;
+            position.margin += price * remaining / effectiveLeverage;
+        }
+        if (position.openVolume == 0) {
+            positions.remove(symbolId);
+        } else {
+            index(uid, symbolId, position);
+        }
+    }
+
+    // value * numerator / denominator without overflowing the intermediate product
+    private static long scale(long value, long numerator, long denominator) {
+        if (numerator == denominator) {
+            return value;
+        }
+        long high = Math.multiplyHigh(value, numerator);
+        long low = value * numerator;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return low / denominator;
+        }
+        return BigInteger.valueOf(value).multiply(BigInteger.valueOf(numerator))
+                .divide(BigInteger.valueOf(denominator)).longValueExact();
+    }
+}
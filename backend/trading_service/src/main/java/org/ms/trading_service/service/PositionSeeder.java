@@ -0,0 +1,102 @@
+package org.ms.trading_service.service;
+
+import exchange.core2.core.ExchangeApi;
+import exchange.core2.core.common.api.reports.SingleUserReportQuery;
+import exchange.core2.core.common.api.reports.SingleUserReportResult;
+import exchange.core2.core.orderbook.OrderBookEventsHelper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.openhft.chronicle.bytes.BytesIn;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads users into the {@link PositionBook} after a snapshot restore. The risk report is translated
+ * on the exchange results thread, where the book's trade sequence marks exactly which fills the
+ * report already contains; the book applies the buffered rest. At most one report per user is in
+ * flight.
+ *
+ * <p>Seeds requested from the trade path are published on the position-seeder thread, never on the
+ * results thread.
+ */
+@Service
+@Slf4j
+public class PositionSeeder {
+
+    private record Seed(SingleUserReportResult report, long sequence) {
+    }
+
+    private final ExchangeApi exchangeApi;
+    private final PositionBook positionBook;
+    private final Map<Long, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "position-seeder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PositionSeeder(@Lazy ExchangeApi exchangeApi, PositionBook positionBook) {
+        this.exchangeApi = exchangeApi;
+        this.positionBook = positionBook;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Completes once the user's positions are in the book, immediately when they already are
+    public CompletableFuture<Void> seed(long uid) {
+        if (!positionBook.needsSeed(uid)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> seeded = new CompletableFuture<>();
+        CompletableFuture<Void> pending = inFlight.putIfAbsent(uid, seeded);
+        if (pending != null) {
+            return pending;
+        }
+
+        SingleUserReportQuery query = new SingleUserReportQuery(uid);
+        CompletableFuture<Seed> report;
+        try {
+            report = exchangeApi.submitQueryAsync(query, 0, cmd -> new Seed(
+                    query.createResult(OrderBookEventsHelper.deserializeEvents(cmd).values().stream()
+                            .map(wire -> (BytesIn) wire.bytes())),
+                    positionBook.tradeSequence()));
+        } catch (RuntimeException e) {
+            report = CompletableFuture.failedFuture(e);
+        }
+        report.whenComplete((seed, error) -> {
+            inFlight.remove(uid, seeded);
+            if (error != null) {
+                log.warn("Failed to seed positions of user {}", uid, error);
+                positionBook.seedFailed(uid);
+                seeded.completeExceptionally(error);
+            } else {
+                positionBook.seed(uid, seed.report(), seed.sequence());
+                seeded.complete(null);
+            }
+        });
+        return seeded;
+    }
+
+    // Called from the trade path for users whose fills the book is buffering
+    public void seedPending() {
+        long[] uids = positionBook.takeSeedRequests();
+        if (uids.length == 0) {
+            return;
+        }
+        executor.execute(() -> {
+            for (long uid : uids) {
+                seed(uid);
+            }
+        });
+    }
+}
@@ -0,0 +1,153 @@
+package org.ms.trading_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.repository.OrderRepository;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Margin reserved by each user's PENDING orders, kept in memory so placing an order does not
+ * scan the user's open orders. Orders are reserved when saved as PENDING and released on fill,
+ * cancel or reject. A periodic job compares the ledger with the DB and publishes the drift.
+ */
+@Component
+@Slf4j
+// Orders recovered from the journal must be in the DB before the ledger loads
+@DependsOn("orderJournal")
+public class ReservedMarginLedger {
+
+    private final OrderRepository orderRepository;
+
+    private final LongLongHashMap reservedByUid = new LongLongHashMap();
+    private final LongLongHashMap uidByOrder = new LongLongHashMap();
+    private final LongLongHashMap marginByOrder = new LongLongHashMap();
+
+    // Mismatches seen by the previous reconciliation; only those that persist are corrected
+    private LongHashSet missingInLedger = new LongHashSet();
+    private LongHashSet missingInDb = new LongHashSet();
+
+    private final AtomicLong drift = new AtomicLong();
+    private final Counter correctedCounter;
+
+    public ReservedMarginLedger(OrderRepository orderRepository, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        Gauge.builder("trading.margin.ledger.drift", drift, AtomicLong::get)
+                .description("Absolute margin difference between the ledger and PENDING orders in the DB")
+                .register(meterRegistry);
+        this.correctedCounter = meterRegistry.counter("trading.margin.ledger.corrected");
+    }
+
+    // Margin = (price * sizeBase) / leverage / lotSizeScale, rounded up at each step
+    public static long marginOf(long price, long sizeBase, long leverage, long lotSizeScale) {
+        return ceilDiv(ceilDiv(price * sizeBase, leverage), lotSizeScale);
+    }
+
+    private static long marginOf(OrderEntity order) {
+        return marginOf(order.getPrice(), order.getSizeBase(), order.getLeverage(),
+                order.getSymbol().getLotSizeScale());
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        List<OrderEntity> pendingOrders = orderRepository.findByStatus("PENDING");
+        for (OrderEntity order : pendingOrders) {
+            reserve(order.getOrderId(), order.getUid(), marginOf(order));
+        }
+        log.info("Margin ledger loaded {} pending orders for {} users", pendingOrders.size(), reservedByUid.size());
+    }
+
+    public synchronized long reservedOf(long uid) {
+        return reservedByUid.get(uid);
+    }
+
+    public synchronized void reserve(long orderId, long uid, long margin) {
+        if (uidByOrder.containsKey(orderId)) {
+            return;
+        }
+        uidByOrder.put(orderId, uid);
+        marginByOrder.put(orderId, margin);
+        reservedByUid.addToValue(uid, margin);
+    }
+
+    // Idempotent, an order may be released by both a trade and a reject event
+    public synchronized void release(long orderId) {
+        if (!uidByOrder.containsKey(orderId)) {
+            return;
+        }
+        long uid = uidByOrder.removeKeyIfAbsent(orderId, 0L);
+        long margin = marginByOrder.removeKeyIfAbsent(orderId, 0L);
+        long remaining = reservedByUid.addToValue(uid, -margin);
+        if (remaining == 0) {
+            reservedByUid.remove(uid);
+        }
+    }
+
+    /**
+     * Fills reach the DB asynchronously, so a single mismatch is expected while they are in
+     * flight. An order is corrected only when it is missing on the same side two runs in a row.
+     */
+    @Scheduled(initialDelayString = "${margin-ledger.reconcile-interval-ms:60000}",
+            fixedDelayString = "${margin-ledger.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        List<OrderEntity> pendingOrders = orderRepository.findByStatus("PENDING");
+        LongLongHashMap dbMargins = new LongLongHashMap(pendingOrders.size());
+        LongLongHashMap dbUids = new LongLongHashMap(pendingOrders.size());
+        for (OrderEntity order : pendingOrders) {
+            dbMargins.put(order.getOrderId(), marginOf(order));
+            dbUids.put(order.getOrderId(), order.getUid());
+        }
+
+        synchronized (this) {
+            long totalDrift = 0;
+            int corrected = 0;
+            LongHashSet nowMissingInLedger = new LongHashSet();
+            LongHashSet nowMissingInDb = new LongHashSet();
+
+            for (long orderId : dbMargins.keySet().toArray()) {
+                if (!uidByOrder.containsKey(orderId)) {
+                    totalDrift += dbMargins.get(orderId);
+                    if (missingInLedger.contains(orderId)) {
+                        reserve(orderId, dbUids.get(orderId), dbMargins.get(orderId));
+                        corrected++;
+                    } else {
+                        nowMissingInLedger.add(orderId);
+                    }
+                }
+            }
+            for (long orderId : uidByOrder.keySet().toArray()) {
+                if (!dbMargins.containsKey(orderId)) {
+                    totalDrift += marginByOrder.get(orderId);
+                    if (missingInDb.contains(orderId)) {
+                        release(orderId);
+                        corrected++;
+                    } else {
+                        nowMissingInDb.add(orderId);
+                    }
+                }
+            }
+
+            missingInLedger = nowMissingInLedger;
+            missingInDb = nowMissingInDb;
+            drift.set(totalDrift);
+            correctedCounter.increment(corrected);
+            if (corrected > 0) {
+                log.warn("Margin ledger corrected {} orders, drift {}", corrected, totalDrift);
+            }
+        }
+    }
+}
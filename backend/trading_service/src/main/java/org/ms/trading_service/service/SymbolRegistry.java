@@ -0,0 +1,67 @@
+package org.ms.trading_service.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.collections.api.map.primitive.ImmutableIntObjectMap;
+import org.eclipse.collections.impl.factory.primitive.IntObjectMaps;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.ms.trading_service.entity.CurrencyEntity;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.repository.CurrencyRepo;
+import org.ms.trading_service.repository.PairRepo;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory view of the pair and currency tables. Lookups read an immutable snapshot without
+ * locking or allocating; {@link #refresh()} rebuilds it from the DB and swaps it in, and is called
+ * whenever a pair or currency is created.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SymbolRegistry {
+
+    private final PairRepo pairRepo;
+    private final CurrencyRepo currencyRepo;
+
+    private volatile Snapshot snapshot = new Snapshot(IntObjectMaps.immutable.empty(), Map.of(), Map.of());
+
+    private record Snapshot(ImmutableIntObjectMap<PairEntity> pairsById,
+                            Map<String, PairEntity> pairsBySymbol,
+                            Map<String, CurrencyEntity> currenciesBySymbol) {
+    }
+
+    @PostConstruct
+    public synchronized void refresh() {
+        IntObjectHashMap<PairEntity> pairsById = new IntObjectHashMap<>();
+        Map<String, PairEntity> pairsBySymbol = new HashMap<>();
+        for (PairEntity pair : pairRepo.findAll()) {
+            pairsById.put(pair.getId(), pair);
+            pairsBySymbol.put(pair.getPairSymbol(), pair);
+        }
+
+        Map<String, CurrencyEntity> currenciesBySymbol = new HashMap<>();
+        for (CurrencyEntity currency : currencyRepo.findAll()) {
+            currenciesBySymbol.put(currency.getSymbol(), currency);
+        }
+
+        snapshot = new Snapshot(pairsById.toImmutable(), Map.copyOf(pairsBySymbol), Map.copyOf(currenciesBySymbol));
+        log.info("Symbol registry loaded {} pairs, {} currencies", pairsById.size(), currenciesBySymbol.size());
+    }
+
+    public PairEntity getPair(int pairId) {
+        return snapshot.pairsById().get(pairId);
+    }
+
+    public PairEntity getPair(String pairSymbol) {
+        return snapshot.pairsBySymbol().get(pairSymbol);
+    }
+
+    public CurrencyEntity getCurrency(String symbol) {
+        return snapshot.currenciesBySymbol().get(symbol);
+    }
+}
@@ -7,13 +7,14 @@ import exchange.core2.core.common.api.reports.SingleUserReportQuery;
 import exchange.core2.core.common.api.reports.SingleUserReportResult;
 import exchange.core2.core.common.cmd.CommandResultCode;
 
-import java.math.BigDecimal;
 import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.ms.trading_service.dto.request.UserRequest;
 import org.ms.trading_service.dto.request.UserRequestToExchange;
+import org.ms.trading_service.utils.FixedPoint;
+import org.ms.trading_service.utils.SnowflakeIdGenerator;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ExecutionException;
@@ -27,6 +28,7 @@ public class UserService {
     private final ExchangeApi exchangeApi;
     private final CurrencyService currencyService;
     private final PairService pairService;
+    private final SnowflakeIdGenerator idGenerator;
 
     private UserRequestToExchange preProcessedUserRequest(UserRequest userRequest) {
 
@@ -38,7 +40,7 @@ public class UserService {
             return null;
         }
 
-        Long amount = new BigDecimal(userRequest.getAmount()).scaleByPowerOfTen(scale.intValue()).longValue();
+        Long amount = FixedPoint.parse(userRequest.getAmount(), scale.intValue());
 
         return UserRequestToExchange.builder()
                 .uid(userRequest.getUid())
@@ -49,45 +51,49 @@ public class UserService {
     }
 
     public boolean addUser(Long uid) throws ExecutionException, InterruptedException {
+        return addUserAsync(uid).get();
+    }
+
+    public CompletableFuture<Boolean> addUserAsync(Long uid) {
         log.info("Creating user {} in Core", uid);
 
         ApiAddUser addUser = ApiAddUser.builder()
                 .uid(uid)
                 .build();
 
-        CompletableFuture<CommandResultCode> future = exchangeApi.submitCommandAsync(addUser);
-
-        CommandResultCode resultCode = future.get();
-
-        if (resultCode == CommandResultCode.SUCCESS) {
-            log.info("User {} created successfully in Core", uid);
-            return true;
-        } else if (resultCode == CommandResultCode.USER_MGMT_USER_ALREADY_EXISTS) {
-            log.info("User {} already exists in Core", uid);
-            return true;
-        } else {
-            log.error("Failed to create user {}. Code: {}", uid, resultCode);
-            return false;
-        }
+        return exchangeApi.submitCommandAsync(addUser).thenApply(resultCode -> {
+            if (resultCode == CommandResultCode.SUCCESS) {
+                log.info("User {} created successfully in Core", uid);
+                return true;
+            } else if (resultCode == CommandResultCode.USER_MGMT_USER_ALREADY_EXISTS) {
+                log.info("User {} already exists in Core", uid);
+                return true;
+            } else {
+                log.error("Failed to create user {}. Code: {}", uid, resultCode);
+                return false;
+            }
+        });
     }
 
     public boolean deposit(UserRequest userRequest)
             throws ExecutionException, InterruptedException {
+        return depositAsync(userRequest).get();
+    }
+
+    public CompletableFuture<Boolean> depositAsync(UserRequest userRequest) {
 
         UserRequestToExchange userRequestToExchange = preProcessedUserRequest(userRequest);
         if (userRequestToExchange == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         Long uid = userRequestToExchange.getUid();
         Long amountDeposit = userRequestToExchange.getAmount();
         Integer currencyId = userRequestToExchange.getCurrencyId();
-        Long transactionId = System.nanoTime();
+        Long transactionId = idGenerator.nextId();
 
         log.info("Depositing {} to user {}", amountDeposit, uid);
 
-        boolean addUserResult = addUser(uid);
-
         ApiAdjustUserBalance command = ApiAdjustUserBalance.builder()
                 .uid(uid)
                 .currency(currencyId.intValue())
@@ -95,24 +101,25 @@ public class UserService {
                 .transactionId(transactionId)
                 .build();
 
-        CompletableFuture<CommandResultCode> future = exchangeApi.submitCommandAsync(command);
-
-        CommandResultCode result = future.get();
-
-        return result == CommandResultCode.SUCCESS;
-
+        // Submitted back to back: the core processes commands in order, so the user exists before the adjustment
+        addUserAsync(uid);
+        return exchangeApi.submitCommandAsync(command).thenApply(result -> result == CommandResultCode.SUCCESS);
     }
 
     public boolean withdraw(UserRequest userRequest) throws ExecutionException, InterruptedException {
+        return withdrawAsync(userRequest).get();
+    }
+
+    public CompletableFuture<Boolean> withdrawAsync(UserRequest userRequest) {
         UserRequestToExchange userRequestToExchange = preProcessedUserRequest(userRequest);
         if (userRequestToExchange == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         Long uid = userRequestToExchange.getUid();
         Long amountWithdraw = userRequestToExchange.getAmount();
         Integer currencyId = userRequestToExchange.getCurrencyId();
-        Long transactionId = System.nanoTime();
+        Long transactionId = idGenerator.nextId();
 
         log.info("Withdrawing {} from user {}", amountWithdraw, uid);
 
@@ -123,20 +130,16 @@ public class UserService {
                 .transactionId(transactionId)
                 .build();
 
-        CompletableFuture<CommandResultCode> future = exchangeApi.submitCommandAsync(command);
-
-        CommandResultCode result = future.get();
-
-        return result == CommandResultCode.SUCCESS;
+        return exchangeApi.submitCommandAsync(command).thenApply(result -> result == CommandResultCode.SUCCESS);
+    }
 
+    // Completes on the exchange results thread, callers must not do blocking work in direct callbacks
+    public CompletableFuture<SingleUserReportResult> getUserReportAsync(long uid) {
+        return exchangeApi.processReport(new SingleUserReportQuery(uid), 0);
     }
 
     public SingleUserReportResult getUserReport(long uid) throws ExecutionException, InterruptedException {
-        SingleUserReportQuery query = new SingleUserReportQuery(uid);
-
-        CompletableFuture<SingleUserReportResult> future = exchangeApi.processReport(query, 0);
-
-        SingleUserReportResult result = future.get();
+        SingleUserReportResult result = getUserReportAsync(uid).get();
 
         log.info("User ID: {}, Accounts: {}, Positions: {}", result.getUid(), result.getAccounts(),
                 result.getPositions());
@@ -8,9 +8,10 @@ import org.ms.trading_service.entity.OrderEntity;
 import org.ms.trading_service.entity.PairEntity;
 import org.ms.trading_service.repository.OrderRepository;
 import org.ms.trading_service.repository.PairRepo;
+import org.ms.trading_service.service.ConflatingPublisher;
+import org.ms.trading_service.service.OrderBookPublisher;
 import org.ms.trading_service.service.OrderService;
 import org.springframework.stereotype.Service;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.util.Arrays;
 import java.util.List;
@@ -27,7 +28,8 @@ public class MarketMakerBot {
     private final OrderService orderService;
     private final OrderRepository orderRepository;
     private final PairRepo pairRepo;
-    private final SimpMessagingTemplate simpMessagingTemplate;
+    private final OrderBookPublisher orderBookPublisher;
+    private final ConflatingPublisher publisher;
 
     private volatile long lastUpdateTimestamp = System.currentTimeMillis();
 
@@ -85,7 +87,7 @@ public class MarketMakerBot {
                         .build();
 
                 // Send to WebSocket
-                simpMessagingTemplate.convertAndSend("/topic/orderBook", orderBookDto);
+                publisher.conflate("orderBook/" + symbol, () -> orderBookPublisher.publish(orderBookDto));
 
             } catch (Exception e) {
                 log.error("Error generating mock data for {}", symbol, e);
@@ -118,7 +120,8 @@ public class MarketMakerBot {
         // Disabled
     }
 
-    private String mapSymbol(String incomingSymbol) {
+    // market_price_service instrument to pair symbol
+    public static String mapSymbol(String incomingSymbol) {
         if (incomingSymbol == null)
             return null;
         switch (incomingSymbol) {
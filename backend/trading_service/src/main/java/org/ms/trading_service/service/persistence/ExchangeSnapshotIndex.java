@@ -0,0 +1,107 @@
+package org.ms.trading_service.service.persistence;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.trading_service.config.ExchangePersistenceConfig;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Locates the newest complete exchange-core snapshot on disk.
+ * The core's own main log ({exchangeId}.eca) is the index: every snapshot module it writes
+ * appends a line with the snapshotId and the sequence the snapshot was taken at.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExchangeSnapshotIndex {
+
+    private final ExchangePersistenceConfig config;
+
+    public record SnapshotPoint(long snapshotId, long seq) {
+    }
+
+    public Optional<SnapshotPoint> findLatestSnapshot(int expectedModules) {
+        Path mainLog = Paths.get(config.getDirectory(), config.getExchangeId() + ".eca");
+        if (!Files.exists(mainLog)) {
+            return Optional.empty();
+        }
+
+        Map<Long, Integer> modulesBySnapshot = new HashMap<>();
+        Map<Long, Long> seqBySnapshot = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(mainLog)) {
+                Map<String, String> fields = parseLine(line);
+                if (!fields.containsKey("snapshotId") || !fields.containsKey("seq")) {
+                    continue;
+                }
+                long snapshotId = Long.parseLong(fields.get("snapshotId"));
+                long seq = Long.parseLong(fields.get("seq"));
+                modulesBySnapshot.merge(snapshotId, 1, Integer::sum);
+                seqBySnapshot.merge(snapshotId, seq, Math::max);
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.error("Failed to read exchange main log {}", mainLog, e);
+            return Optional.empty();
+        }
+
+        // A snapshot only counts once every matching and risk engine has written its part
+        return modulesBySnapshot.entrySet().stream()
+                .filter(e -> e.getValue() >= expectedModules)
+                .map(Map.Entry::getKey)
+                .max(Long::compare)
+                .map(snapshotId -> new SnapshotPoint(snapshotId, seqBySnapshot.get(snapshotId)));
+    }
+
+    public boolean hasJournal(long snapshotId) {
+        Path dir = Paths.get(config.getDirectory());
+        if (!Files.isDirectory(dir)) {
+            return false;
+        }
+        String prefix = config.getExchangeId() + "_journal_" + snapshotId + "_";
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.anyMatch(p -> p.getFileName().toString().startsWith(prefix));
+        } catch (IOException e) {
+            log.error("Failed to list exchange data directory {}", dir, e);
+            return false;
+        }
+    }
+
+    // Number of the last journal file written on top of this snapshot, 0 when there is none
+    public int lastJournalFile(long snapshotId) {
+        Path dir = Paths.get(config.getDirectory());
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        // {exchangeId}_journal_{snapshotId}_{hex file number}.ecj
+        String prefix = config.getExchangeId() + "_journal_" + snapshotId + "_";
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(".ecj"))
+                    .mapToInt(name -> Integer.parseInt(name.substring(prefix.length(), name.length() - 4), 16))
+                    .max()
+                    .orElse(0);
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Failed to list exchange journal files in " + dir, e);
+        }
+    }
+
+    private static Map<String, String> parseLine(String line) {
+        Map<String, String> fields = new HashMap<>();
+        for (String token : line.trim().split(" ")) {
+            int eq = token.indexOf('=');
+            if (eq > 0) {
+                fields.put(token.substring(0, eq), token.substring(eq + 1));
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,57 @@
+package org.ms.trading_service.service.persistence;
+
+import exchange.core2.core.ExchangeApi;
+import exchange.core2.core.common.api.ApiPersistState;
+import exchange.core2.core.common.cmd.CommandResultCode;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.trading_service.config.ExchangePersistenceConfig;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExchangeSnapshotService {
+
+    private final ExchangeApi exchangeApi;
+    private final ExchangePersistenceConfig config;
+
+    @Scheduled(initialDelayString = "${exchange-core.persistence.snapshot-interval-ms:600000}",
+            fixedDelayString = "${exchange-core.persistence.snapshot-interval-ms:600000}")
+    public void scheduledSnapshot() {
+        if (config.isEnabled()) {
+            takeSnapshot();
+        }
+    }
+
+    // Final snapshot on shutdown so the next start has only a short journal tail to replay
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        if (config.isEnabled()) {
+            takeSnapshot();
+        }
+    }
+
+    public boolean takeSnapshot() {
+        long snapshotId = System.currentTimeMillis();
+        try {
+            CommandResultCode code = exchangeApi.submitCommandAsync(ApiPersistState.builder()
+                    .dumpId(snapshotId)
+                    .build()).get(60, TimeUnit.SECONDS);
+            if (code == CommandResultCode.SUCCESS) {
+                log.info("Exchange snapshot {} stored", snapshotId);
+                return true;
+            }
+            log.error("Exchange snapshot {} failed. Code: {}", snapshotId, code);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Exchange snapshot {} failed", snapshotId, e);
+        }
+        return false;
+    }
+}
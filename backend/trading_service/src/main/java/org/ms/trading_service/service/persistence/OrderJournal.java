@@ -0,0 +1,472 @@
+package org.ms.trading_service.service.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
+import org.ms.trading_service.config.OrderJournalConfig;
+import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.repository.OrderRepository;
+import org.ms.trading_service.service.SymbolRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind store for new orders. The order path appends each order to memory-mapped journal
+ * segments ({@code orders-NNNNNNNNNN.journal}) and a drainer thread loads them into the DB in
+ * batches, keeping MySQL off the placement latency. How far the DB has caught up is kept in a
+ * {@code checkpoint} file; drained segments are deleted.
+ *
+ * <p>Records are little-endian and length prefixed, the length written after the payload so a
+ * half-written record reads as the end of the segment:
+ *
+ * <pre>
+ * int32    payload length (0 marks the end of the written part of a segment)
+ * int64    order id, uid
+ * int32    pair id
+ * int64    price, base size, leverage, TP price, SL price (Long.MIN_VALUE when unset)
+ * int64    created at, epoch millis
+ * uint8    type length, followed by the ASCII type; the same for the side
+ * </pre>
+ *
+ * On startup every record after the checkpoint is loaded before the service takes orders. Those
+ * drained just before a crash but not yet checkpointed are recognised by id and skipped. Anything
+ * reading orders from the DB that may just have been placed calls {@link #drain()} first.
+ */
+@Service
+@Slf4j
+public class OrderJournal {
+
+    static final int LENGTH_BYTES = 4;
+    static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 4 + 5 * 8 + 8 + 1 + 1;
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final OrderJournalConfig config;
+    private final OrderRepository orderRepository;
+    private final SymbolRegistry symbolRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+
+    private final Timer drainTimer;
+    private final Counter drainedCounter;
+    private final Counter failedCounter;
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+
+    // Mapped segments not fully drained yet, by segment number; guarded by this
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private ByteBuffer scratch = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    // Only touched while holding drainLock
+    private final Object drainLock = new Object();
+    private long readSegment;
+    private int readOffset;
+    private boolean recovering;
+
+    private volatile boolean running;
+    private Thread drainerThread;
+    // Its own thread: the shared scheduler also runs snapshots and scans that would hold up the fsync
+    private ScheduledExecutorService fsyncExecutor;
+
+    public OrderJournal(OrderJournalConfig config, OrderRepository orderRepository, SymbolRegistry symbolRegistry,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.orderRepository = orderRepository;
+        this.symbolRegistry = symbolRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.directory = Path.of(config.getDirectory());
+
+        Gauge.builder("trading.order.journal.backlog", this, journal -> journal.appended.get() - journal.drained.get())
+                .description("Journaled orders not yet loaded into the DB")
+                .register(meterRegistry);
+        this.drainTimer = Timer.builder("trading.order.journal.drain")
+                .description("Time spent loading one batch of journaled orders")
+                .register(meterRegistry);
+        this.drainedCounter = meterRegistry.counter("trading.order.journal.drained");
+        this.failedCounter = meterRegistry.counter("trading.order.journal.failed");
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        recover();
+        running = true;
+        drainerThread = new Thread(this::runDrainer, "order-journal-drainer");
+        drainerThread.setDaemon(true);
+        drainerThread.start();
+        if ("INTERVAL".equals(config.getFsync())) {
+            fsyncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fsyncExecutor.scheduleWithFixedDelay(this::forcePeriodically, config.getFsyncIntervalMs(),
+                    config.getFsyncIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (fsyncExecutor != null) {
+            fsyncExecutor.shutdown();
+        }
+        drainerThread.interrupt();
+        drainerThread.join(TimeUnit.SECONDS.toMillis(10));
+        // Whatever is left stays in the journal if this fails, and is loaded on the next start
+        drainQuietly();
+        synchronized (this) {
+            writeBuffer.force();
+        }
+    }
+
+    public void append(OrderEntity order) {
+        appendAll(List.of(order));
+    }
+
+    /**
+     * Journals the orders as one unit: they are all encoded before anything is written, so an order
+     * that fails to serialize leaves the journal as it was.
+     */
+    public synchronized void appendAll(List<OrderEntity> orders) {
+        int[] lengths = new int[orders.size()];
+        ByteBuffer payloads = encode(orders, lengths);
+
+        int start = writeBuffer.position();
+        int payloadOffset = 0;
+        for (int length : lengths) {
+            if (writeBuffer.remaining() < LENGTH_BYTES + length + LENGTH_BYTES) {
+                // Leaves room for the zero length that terminates the segment
+                force(start);
+                openSegment(writeSegment + 1);
+                start = 0;
+            }
+            int recordStart = writeBuffer.position();
+            writeBuffer.put(recordStart + LENGTH_BYTES, payloads, payloadOffset, length);
+            writeBuffer.position(recordStart + LENGTH_BYTES + length);
+            writeBuffer.putInt(recordStart, length);
+            payloadOffset += length;
+        }
+        force(start);
+        appended.addAndGet(orders.size());
+    }
+
+    // Payloads back to back in the scratch buffer, their lengths in lengths
+    private ByteBuffer encode(List<OrderEntity> orders, int[] lengths) {
+        scratch.clear();
+        for (int i = 0; i < lengths.length; i++) {
+            OrderEntity order = orders.get(i);
+            byte[] type = ascii(order.getType());
+            byte[] side = ascii(order.getSide());
+            lengths[i] = FIXED_PAYLOAD_BYTES + type.length + side.length;
+            if (scratch.remaining() < lengths[i]) {
+                scratch = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + lengths[i]))
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .put(scratch.flip());
+            }
+            scratch.putLong(order.getOrderId());
+            scratch.putLong(order.getUid());
+            scratch.putInt(order.getSymbol().getId());
+            scratch.putLong(order.getPrice());
+            scratch.putLong(order.getSizeBase());
+            scratch.putLong(order.getLeverage());
+            scratch.putLong(order.getTpPrice() == null ? UNSET : order.getTpPrice());
+            scratch.putLong(order.getSlPrice() == null ? UNSET : order.getSlPrice());
+            scratch.putLong(order.getCreatedAt().getTime());
+            scratch.put((byte) type.length).put(type);
+            scratch.put((byte) side.length).put(side);
+        }
+        return scratch;
+    }
+
+    private void force(int from) {
+        if ("ALWAYS".equals(config.getFsync()) && writeBuffer.position() > from) {
+            writeBuffer.force(from, writeBuffer.position() - from);
+        }
+    }
+
+    private void forcePeriodically() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            buffer = writeBuffer;
+        }
+        try {
+            buffer.force();
+        } catch (RuntimeException e) {
+            // A task that throws is never scheduled again
+            log.error("Failed to fsync the order journal", e);
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("Value too long for the order journal: " + value);
+        }
+        return bytes;
+    }
+
+    /**
+     * Loads every order journaled so far into the DB and returns how many were loaded. Safe to
+     * call from any thread; callers wait for a drain already in progress.
+     */
+    public int drain() {
+        synchronized (drainLock) {
+            try {
+                int total = drainAvailable();
+                recovering = false;
+                return total;
+            } catch (RuntimeException e) {
+                // The batch may have been committed without its checkpoint, so the retry skips loaded orders
+                recovering = true;
+                throw e;
+            }
+        }
+    }
+
+    private int drainAvailable() {
+        long endSegment;
+        int endOffset;
+        synchronized (this) {
+            endSegment = writeSegment;
+            endOffset = writeBuffer.position();
+        }
+
+        int total = 0;
+        while (true) {
+            List<OrderEntity> batch = new ArrayList<>();
+            long segment = readSegment;
+            int offset = readOffset;
+            while (batch.size() < config.getMaxBatchSize()) {
+                ByteBuffer buffer = segmentBuffer(segment);
+                int length = segment == endSegment && offset >= endOffset ? 0 : buffer.getInt(offset);
+                if (length == 0) {
+                    if (segment == endSegment) {
+                        break;
+                    }
+                    segment++;
+                    offset = 0;
+                    continue;
+                }
+                batch.add(read(buffer, offset + LENGTH_BYTES));
+                offset += LENGTH_BYTES + length;
+            }
+            if (batch.isEmpty() && segment == readSegment) {
+                break;
+            }
+
+            if (!batch.isEmpty()) {
+                load(batch);
+            }
+            total += batch.size();
+            checkpoint(segment, offset);
+        }
+        return total;
+    }
+
+    private void load(List<OrderEntity> batch) {
+        List<OrderEntity> pending = batch;
+        if (recovering) {
+            // Loaded by the run that crashed, after its last checkpoint
+            LongHashSet existing = new LongHashSet();
+            orderRepository.findAllById(batch.stream().map(OrderEntity::getOrderId).toList())
+                    .forEach(order -> existing.add(order.getOrderId()));
+            pending = batch.stream().filter(order -> !existing.contains(order.getOrderId())).toList();
+        }
+        List<OrderEntity> toSave = pending;
+        drainTimer.record(() -> transactionTemplate.executeWithoutResult(status -> orderRepository.saveAll(toSave)));
+        drainedCounter.increment(toSave.size());
+        drained.addAndGet(batch.size());
+    }
+
+    private OrderEntity read(ByteBuffer buffer, int offset) {
+        ByteBuffer record = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(offset);
+        long orderId = record.getLong();
+        long uid = record.getLong();
+        int pairId = record.getInt();
+        long price = record.getLong();
+        long sizeBase = record.getLong();
+        long leverage = record.getLong();
+        long tpPrice = record.getLong();
+        long slPrice = record.getLong();
+        Date createdAt = new Date(record.getLong());
+        String type = readAscii(record);
+        String side = readAscii(record);
+
+        PairEntity pair = symbolRegistry.getPair(pairId);
+        if (pair == null) {
+            throw new IllegalStateException("Journaled order " + orderId + " references unknown pair " + pairId);
+        }
+        return OrderEntity.builder()
+                .orderId(orderId)
+                .uid(uid)
+                .symbol(pair)
+                .type(type)
+                .side(side)
+                .price(price)
+                .sizeBase(sizeBase)
+                .leverage(leverage)
+                .tpPrice(tpPrice == UNSET ? null : tpPrice)
+                .slPrice(slPrice == UNSET ? null : slPrice)
+                .status("PENDING")
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    private static String readAscii(ByteBuffer record) {
+        byte[] bytes = new byte[record.get() & 0xFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private void runDrainer() {
+        while (running) {
+            try {
+                Thread.sleep(config.getDrainIntervalMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            drainQuietly();
+        }
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (Exception e) {
+            // Nothing was checkpointed, the batch is retried on the next pass
+            failedCounter.increment();
+            log.warn("Failed to drain order journal, retrying: {}", e.getMessage());
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        long checkpointSegment = 0;
+        int checkpointOffset = 0;
+        Path checkpoint = directory.resolve("checkpoint");
+        if (Files.exists(checkpoint)) {
+            ByteBuffer stored = ByteBuffer.wrap(Files.readAllBytes(checkpoint)).order(ByteOrder.LITTLE_ENDIAN);
+            checkpointSegment = stored.getLong();
+            checkpointOffset = stored.getInt();
+        }
+
+        long lastSegment = checkpointSegment - 1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if (!name.startsWith("orders-") || !name.endsWith(".journal")) {
+                    continue;
+                }
+                long number = Long.parseLong(name.substring("orders-".length(), name.length() - ".journal".length()));
+                if (number < checkpointSegment) {
+                    Files.delete(path);
+                } else {
+                    segments.put(number, map(path, FileChannel.MapMode.READ_ONLY, Files.size(path)));
+                    lastSegment = Math.max(lastSegment, number);
+                }
+            }
+        }
+
+        // A segment is never reopened for writing, the run continues in a fresh one
+        openSegment(lastSegment + 1);
+        synchronized (drainLock) {
+            readSegment = segments.containsKey(checkpointSegment) ? checkpointSegment : segments.firstKey();
+            readOffset = readSegment == checkpointSegment ? checkpointOffset : 0;
+            recovering = true;
+        }
+        try {
+            int replayed = drain();
+            appended.addAndGet(replayed);
+            log.info("Order journal recovered {} undrained orders from {}", replayed, directory);
+        } catch (RuntimeException e) {
+            // Left to the drainer, which keeps retrying once started
+            log.error("Failed to load undrained orders from {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private ByteBuffer segmentBuffer(long number) {
+        synchronized (this) {
+            return segments.get(number);
+        }
+    }
+
+    private void checkpoint(long segment, int offset) {
+        ByteBuffer stored = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN).putLong(segment).putInt(offset);
+        try {
+            // Written after the DB commit; a lost checkpoint only makes the next start skip loaded orders
+            Files.write(directory.resolve("checkpoint"), stored.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (this) {
+            Map<Long, MappedByteBuffer> drainedSegments = segments.headMap(segment);
+            for (Long number : drainedSegments.keySet()) {
+                try {
+                    Files.deleteIfExists(segmentPath(number));
+                } catch (IOException e) {
+                    log.warn("Failed to delete drained journal segment {}: {}", number, e.getMessage());
+                }
+            }
+            drainedSegments.clear();
+        }
+        readSegment = segment;
+        readOffset = offset;
+    }
+
+    private void openSegment(long number) {
+        try {
+            writeBuffer = map(segmentPath(number), FileChannel.MapMode.READ_WRITE, (long) config.getSegmentSizeMb() << 20);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeSegment = number;
+        segments.put(number, writeBuffer);
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, long size) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            // The mapping outlives the channel; new file pages read as zero, which terminates the records
+            MappedByteBuffer buffer = channel.map(mode, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("orders-%010d.journal", number));
+    }
+}
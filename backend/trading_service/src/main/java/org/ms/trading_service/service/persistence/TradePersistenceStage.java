@@ -0,0 +1,356 @@
+package org.ms.trading_service.service.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.ms.trading_service.config.TradePersistenceConfig;
+import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.entity.PositionEntity;
+import org.ms.trading_service.entity.ReplayedBatchEntity;
+import org.ms.trading_service.repository.OrderRepository;
+import org.ms.trading_service.repository.PositionRepository;
+import org.ms.trading_service.repository.ReplayedBatchRepository;
+import org.ms.trading_service.utils.SnowflakeIdGenerator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists trade fills off the exchange-core results thread.
+ * Fills are queued by the events handler and a single writer thread coalesces them
+ * per order and per position before writing each batch in one transaction.
+ * Rejections travel the same queue so status updates stay ordered with the fills.
+ *
+ * <p>A batch that still fails after the retries is parked in a dead-letter file rather than
+ * dropped, and replayed once the DB accepts writes again. Newer batches are not held back for it:
+ * fills only add to order and position totals, so applying a parked batch after them gives the
+ * same rows. A replay records its batch ids in the same transaction, so a crash before the file is
+ * deleted does not apply a batch twice.
+ */
+@Service
+@Slf4j
+public class TradePersistenceStage {
+
+    private static final int PARKED_RECORD_BYTES = 32;
+
+    private final TradePersistenceConfig config;
+    private final OrderRepository orderRepository;
+    private final PositionRepository positionRepository;
+    private final ReplayedBatchRepository replayedBatchRepository;
+    private final OrderJournal orderJournal;
+    private final TransactionTemplate transactionTemplate;
+    private final SnowflakeIdGenerator idGenerator;
+
+    private final BlockingQueue<Fill> queue;
+    private final Timer flushTimer;
+    private final Counter persistedCounter;
+    private final Counter droppedCounter;
+    private final Counter retriedCounter;
+    private final Counter parkedCounter;
+    private final Path deadLetterFile;
+    // Writer thread only
+    private long nextParkedReplayMs;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    private record Fill(long orderId, long size, long price) {
+    }
+
+    private record PositionKey(long uid, int pairId, String side) {
+    }
+
+    private static final class Aggregate {
+        long size;
+        long notional;
+        OrderEntity order;
+
+        void add(long size, long notional) {
+            this.size += size;
+            this.notional += notional;
+        }
+    }
+
+    public TradePersistenceStage(TradePersistenceConfig config, OrderRepository orderRepository,
+            PositionRepository positionRepository, ReplayedBatchRepository replayedBatchRepository,
+            OrderJournal orderJournal, TransactionTemplate transactionTemplate, SnowflakeIdGenerator idGenerator,
+            MeterRegistry meterRegistry) {
+        this.config = config;
+        this.orderRepository = orderRepository;
+        this.positionRepository = positionRepository;
+        this.replayedBatchRepository = replayedBatchRepository;
+        this.orderJournal = orderJournal;
+        this.transactionTemplate = transactionTemplate;
+        this.idGenerator = idGenerator;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        Gauge.builder("trading.persistence.backlog", queue, BlockingQueue::size)
+                .description("Fills waiting to be persisted")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("trading.persistence.flush")
+                .description("Time spent writing one batch of fills")
+                .register(meterRegistry);
+        this.persistedCounter = meterRegistry.counter("trading.persistence.persisted");
+        this.droppedCounter = meterRegistry.counter("trading.persistence.dropped");
+        this.retriedCounter = meterRegistry.counter("trading.persistence.retried");
+        this.parkedCounter = meterRegistry.counter("trading.persistence.parked");
+        this.deadLetterFile = Path.of(config.getDeadLetterFile());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "trade-persistence-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public void enqueue(long orderId, long size, long price) {
+        offer(new Fill(orderId, size, price));
+    }
+
+    // Marks a still PENDING order as REJECTED; a zero-size fill carries the rejection through the same queue
+    public void enqueueReject(long orderId) {
+        offer(new Fill(orderId, 0L, 0L));
+    }
+
+    private void offer(Fill fill) {
+        long orderId = fill.orderId();
+        try {
+            if (!queue.offer(fill, config.getOfferTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                droppedCounter.increment();
+                log.error("Persistence queue full, dropped fill for order {}", orderId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCounter.increment();
+        }
+    }
+
+    private void runWriter() {
+        List<Fill> batch = new ArrayList<>(config.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                replayParked();
+                Fill first = queue.poll(config.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, config.getMaxBatchSize() - 1);
+                flushWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushWithRetry(List<Fill> batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                flushInTransaction(batch);
+                return;
+            } catch (Exception e) {
+                if (attempt >= config.getMaxRetries()) {
+                    log.error("Failed to persist {} fills after {} attempts, parking them", batch.size(),
+                            attempt + 1, e);
+                    park(batch);
+                    return;
+                }
+                retriedCounter.increment();
+                log.warn("Failed to persist {} fills, retrying: {}", batch.size(), e.getMessage());
+                Thread.sleep(config.getRetryBackoffMs() * (attempt + 1));
+            }
+        }
+    }
+
+    private void flushInTransaction(List<Fill> batch) {
+        // Every order with a fill in this batch was journaled before it was submitted
+        orderJournal.drain();
+        flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> flush(batch)));
+        persistedCounter.increment(batch.size());
+    }
+
+    // Records are four little-endian int64: batch id, order id, size, price
+    private void park(List<Fill> batch) {
+        long batchId = idGenerator.nextId();
+        ByteBuffer records = ByteBuffer.allocate(batch.size() * PARKED_RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (Fill fill : batch) {
+            records.putLong(batchId).putLong(fill.orderId()).putLong(fill.size()).putLong(fill.price());
+        }
+        records.flip();
+        try {
+            Files.createDirectories(deadLetterFile.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(deadLetterFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                channel.force(false);
+            }
+            parkedCounter.increment(batch.size());
+            nextParkedReplayMs = System.currentTimeMillis() + config.getParkedReplayIntervalMs();
+        } catch (IOException e) {
+            droppedCounter.increment(batch.size());
+            log.error("Failed to park {} fills in {}, they are lost", batch.size(), deadLetterFile, e);
+        }
+    }
+
+    private void replayParked() {
+        long nowMs = System.currentTimeMillis();
+        if (nowMs < nextParkedReplayMs || !Files.exists(deadLetterFile)) {
+            return;
+        }
+        nextParkedReplayMs = nowMs + config.getParkedReplayIntervalMs();
+        Set<Long> batchIds = new HashSet<>();
+        try {
+            ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(deadLetterFile)).order(ByteOrder.LITTLE_ENDIAN);
+            Map<Long, List<Fill>> parked = new LinkedHashMap<>();
+            while (records.remaining() >= PARKED_RECORD_BYTES) {
+                parked.computeIfAbsent(records.getLong(), k -> new ArrayList<>())
+                        .add(new Fill(records.getLong(), records.getLong(), records.getLong()));
+            }
+            batchIds.addAll(parked.keySet());
+            // Committed by an earlier replay that crashed before deleting the file
+            replayedBatchRepository.findAllById(batchIds).forEach(replayed -> parked.remove(replayed.getBatchId()));
+
+            List<Fill> fills = new ArrayList<>();
+            parked.values().forEach(fills::addAll);
+            if (!fills.isEmpty()) {
+                Date now = new Date();
+                List<ReplayedBatchEntity> replayed = parked.keySet().stream()
+                        .map(batchId -> ReplayedBatchEntity.builder().batchId(batchId).replayedAt(now).build())
+                        .toList();
+                orderJournal.drain();
+                // One transaction, so the file is either replayed whole or left for the next attempt
+                flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                    flush(fills);
+                    replayedBatchRepository.saveAll(replayed);
+                }));
+                persistedCounter.increment(fills.size());
+            }
+            Files.delete(deadLetterFile);
+            log.info("Replayed {} parked fills from {}", fills.size(), deadLetterFile);
+        } catch (Exception e) {
+            log.warn("Failed to replay parked fills from {}, retrying later: {}", deadLetterFile, e.getMessage());
+            return;
+        }
+        try {
+            replayedBatchRepository.deleteAllById(batchIds);
+        } catch (RuntimeException e) {
+            // Leftover ids are never reused, they only take up a row
+            log.warn("Failed to clear replayed batch ids: {}", e.getMessage());
+        }
+    }
+
+    private void flush(List<Fill> batch) {
+        Map<Long, Aggregate> fillsByOrder = new LinkedHashMap<>();
+        for (Fill fill : batch) {
+            fillsByOrder.computeIfAbsent(fill.orderId(), k -> new Aggregate())
+                    .add(fill.size(), fill.size() * fill.price());
+        }
+
+        List<OrderEntity> orders = orderRepository.findAllById(fillsByOrder.keySet());
+        Map<PositionKey, Aggregate> fillsByPosition = new LinkedHashMap<>();
+        for (OrderEntity order : orders) {
+            Aggregate orderFill = fillsByOrder.get(order.getOrderId());
+            if (orderFill.size == 0) {
+                // Only rejections for this order in the batch, a fill always wins over a reject
+                if ("PENDING".equals(order.getStatus())) {
+                    order.setStatus("REJECTED");
+                }
+                continue;
+            }
+            order.setStatus("FILLED");
+
+            PositionKey key = new PositionKey(order.getUid(), order.getSymbol().getId(), order.getSide());
+            Aggregate positionFill = fillsByPosition.computeIfAbsent(key, k -> new Aggregate());
+            positionFill.add(orderFill.size, orderFill.notional);
+            positionFill.order = order;
+        }
+        orderRepository.saveAll(orders);
+
+        // Open positions of every user in the batch in one query, matched to the fills in memory
+        Map<PositionKey, PositionEntity> openPositions = new HashMap<>();
+        Set<Long> uids = new HashSet<>();
+        fillsByPosition.keySet().forEach(key -> uids.add(key.uid()));
+        if (!uids.isEmpty()) {
+            for (PositionEntity position : positionRepository.findByUidInAndStatus(uids, "OPEN")) {
+                openPositions.put(new PositionKey(position.getUid(), position.getSymbol().getId(),
+                        position.getSide()), position);
+            }
+        }
+
+        Date now = new Date();
+        List<PositionEntity> positions = new ArrayList<>(fillsByPosition.size());
+        fillsByPosition.forEach((key, fill) -> {
+            OrderEntity order = fill.order;
+            PositionEntity position = Optional.ofNullable(openPositions.get(key))
+                    .orElseGet(() -> PositionEntity.builder()
+                            .id(idGenerator.nextId())
+                            .uid(order.getUid())
+                            .symbol(order.getSymbol())
+                            .side(order.getSide())
+                            .sizeBase(0L)
+                            .entryPrice(0L)
+                            .exitPrice(0L)
+                            .leverage(order.getLeverage())
+                            .status("OPEN")
+                            .createdAt(now)
+                            .build());
+
+            long newSize = position.getSizeBase() + fill.size;
+            long totalValue = (position.getSizeBase() * position.getEntryPrice()) + fill.notional;
+            long newEntryPrice = newSize == 0 ? 0 : totalValue / newSize;
+
+            position.setSizeBase(newSize);
+            position.setEntryPrice(newEntryPrice);
+            position.setUpdatedAt(now);
+
+            long leverage = position.getLeverage();
+            long liqPrice = 0;
+            if (leverage > 0) {
+                if ("BUY".equals(position.getSide())) {
+                    liqPrice = newEntryPrice - (newEntryPrice / leverage);
+                } else if ("SELL".equals(position.getSide())) {
+                    liqPrice = newEntryPrice + (newEntryPrice / leverage);
+                }
+            }
+            position.setLiqPrice(liqPrice);
+            positions.add(position);
+        });
+        positionRepository.saveAll(positions);
+    }
+}
@@ -0,0 +1,90 @@
+package org.ms.trading_service.service.trigger;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (trigger price, order id) pairs on primitive arrays. A rising heap fires entries
+ * whose price the market has reached from below (smallest price first), a falling heap those
+ * reached from above (largest first). Not thread safe.
+ */
+final class PriceTriggerHeap {
+
+    private final boolean rising;
+    private long[] keys = new long[64];
+    private long[] orderIds = new long[64];
+    private int size;
+
+    PriceTriggerHeap(boolean rising) {
+        this.rising = rising;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(long price, long orderId) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            orderIds = Arrays.copyOf(orderIds, size * 2);
+        }
+        // Falling heaps store negated prices, so both kinds are min-heaps
+        keys[size] = rising ? price : -price;
+        orderIds[size] = orderId;
+        siftUp(size++);
+    }
+
+    // True when the top entry fires at this price
+    boolean crossed(long price) {
+        return size > 0 && keys[0] <= (rising ? price : -price);
+    }
+
+    long peekOrderId() {
+        return orderIds[0];
+    }
+
+    void poll() {
+        size--;
+        keys[0] = keys[size];
+        orderIds[0] = orderIds[size];
+        siftDown(0);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[parent] <= keys[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && keys[left] < keys[smallest]) {
+                smallest = left;
+            }
+            if (right < size && keys[right] < keys[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(smallest, index);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long orderId = orderIds[a];
+        orderIds[a] = orderIds[b];
+        orderIds[b] = orderId;
+    }
+}
@@ -0,0 +1,345 @@
+package org.ms.trading_service.service.trigger;
+
+import exchange.core2.core.ExchangeApi;
+import exchange.core2.core.common.OrderAction;
+import exchange.core2.core.common.OrderType;
+import exchange.core2.core.common.api.ApiPlaceOrder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.ms.trading_service.config.TpSlTriggerConfig;
+import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.repository.OrderRepository;
+import org.ms.trading_service.service.PositionBook;
+import org.ms.trading_service.service.PositionSeeder;
+import org.ms.trading_service.service.persistence.OrderJournal;
+import org.ms.trading_service.utils.SnowflakeIdGenerator;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side take-profit and stop-loss. An order placed with a TP or SL price registers a trigger,
+ * which is armed by the order's fills and sized to the filled volume. Armed legs sit in per-symbol
+ * {@link PriceTriggerHeap}s; each trade or mark price tick pops the legs it crossed, and the
+ * resulting reduce orders are handed to the exchange as one batch. TP and SL of an order are one
+ * cancels the other.
+ *
+ * <p>Triggers live in memory only; {@link #restore} rebuilds them from the orders table after a
+ * restart.
+ *
+ * <p>All trigger state is confined to the single tpsl-trigger thread, which also keeps ring buffer
+ * publishing off the exchange results thread.
+ */
+@Service
+@Slf4j
+public class TpSlTriggerEngine {
+
+    private static final class Trigger {
+        long orderId;
+        long uid;
+        int symbolId;
+        PairEntity pair;
+        // Direction of the position the order opens, 1 long or -1 short
+        int direction;
+        long tpPrice;
+        long slPrice;
+        long leverage;
+        long armedVolume;
+    }
+
+    // Legs that fire when the price rises to them and legs that fire when it falls to them
+    private static final class SymbolTriggers {
+        final PriceTriggerHeap rising = new PriceTriggerHeap(true);
+        final PriceTriggerHeap falling = new PriceTriggerHeap(false);
+    }
+
+    private final ExchangeApi exchangeApi;
+    private final PositionBook positionBook;
+    private final PositionSeeder positionSeeder;
+    private final OrderRepository orderRepository;
+    private final OrderJournal orderJournal;
+    private final SnowflakeIdGenerator idGenerator;
+    private final TpSlTriggerConfig config;
+    private final Timer triggerLatency;
+    private final Counter firedCounter;
+    private final Counter skippedCounter;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tpsl-trigger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Registered triggers by the order that carries them; a popped leg whose order is gone is stale
+    private final LongObjectHashMap<Trigger> triggers = new LongObjectHashMap<>();
+    private final IntObjectHashMap<SymbolTriggers> bySymbol = new IntObjectHashMap<>();
+
+    public TpSlTriggerEngine(@Lazy ExchangeApi exchangeApi, PositionBook positionBook,
+            PositionSeeder positionSeeder, OrderRepository orderRepository,
+            OrderJournal orderJournal, SnowflakeIdGenerator idGenerator,
+            TpSlTriggerConfig config, MeterRegistry meterRegistry) {
+        this.exchangeApi = exchangeApi;
+        this.positionBook = positionBook;
+        this.positionSeeder = positionSeeder;
+        this.orderRepository = orderRepository;
+        this.orderJournal = orderJournal;
+        this.idGenerator = idGenerator;
+        this.config = config;
+        this.triggerLatency = Timer.builder("trading.tpsl.trigger.latency")
+                .description("Price tick to reduce order submission")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.firedCounter = meterRegistry.counter("trading.tpsl.fired");
+        this.skippedCounter = meterRegistry.counter("trading.tpsl.skipped");
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param side BUY or SELL of the order carrying the TP/SL; prices in exchange price units, null when unset
+     */
+    public void register(long orderId, long uid, PairEntity pair, String side, long leverage, Long tpPrice,
+            Long slPrice) {
+        if (tpPrice == null && slPrice == null) {
+            return;
+        }
+        Trigger trigger = new Trigger();
+        trigger.orderId = orderId;
+        trigger.uid = uid;
+        trigger.symbolId = pair.getId();
+        trigger.pair = pair;
+        trigger.direction = "BUY".equals(side) ? 1 : -1;
+        trigger.tpPrice = tpPrice == null ? 0 : tpPrice;
+        trigger.slPrice = slPrice == null ? 0 : slPrice;
+        trigger.leverage = leverage;
+        executor.execute(() -> triggers.put(orderId, trigger));
+    }
+
+    private record PositionKey(long uid, int symbolId, int direction) {
+    }
+
+    /**
+     * Rebuilds the triggers of orders that still carry a TP or SL; fired and cancelled legs were
+     * cleared on their rows. A position's open volume is split across its filled orders, newest
+     * first and each up to its size, so the restored legs never cover more than is open. Pending
+     * orders are armed by their fills as usual.
+     */
+    public void restore() {
+        List<OrderEntity> orders = new ArrayList<>(
+                orderRepository.findWithTriggersByStatusIn(List.of("PENDING", "FILLED", "CANCELLED")));
+        if (orders.isEmpty()) {
+            return;
+        }
+        // After a snapshot restore the book only knows a user's positions once they are seeded
+        CompletableFuture.allOf(orders.stream()
+                .map(OrderEntity::getUid)
+                .distinct()
+                .map(uid -> positionSeeder.seed(uid).exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new)).join();
+
+        // Snowflake ids follow placement time
+        orders.sort(Comparator.comparing(OrderEntity::getOrderId).reversed());
+        Map<PositionKey, Long> unallocated = new HashMap<>();
+        List<Long> closed = new ArrayList<>();
+        int restored = 0;
+        for (OrderEntity order : orders) {
+            if ("PENDING".equals(order.getStatus())) {
+                register(order.getOrderId(), order.getUid(), order.getSymbol(), order.getSide(),
+                        order.getLeverage(), order.getTpPrice(), order.getSlPrice());
+                restored++;
+                continue;
+            }
+            // Filled, or cancelled after filling part of it
+            PositionKey key = new PositionKey(order.getUid(), order.getSymbol().getId(),
+                    "BUY".equals(order.getSide()) ? 1 : -1);
+            long open = unallocated.computeIfAbsent(key,
+                    k -> positionBook.openVolume(k.uid(), k.symbolId(), k.direction()));
+            if (positionBook.openVolume(key.uid(), key.symbolId(), key.direction()) == 0) {
+                // The position is gone, so is every trigger on it
+                closed.add(order.getOrderId());
+                continue;
+            }
+            long volume = Math.min(order.getSizeBase(), open);
+            if (volume == 0) {
+                // Newer orders already cover what is open
+                continue;
+            }
+            unallocated.put(key, open - volume);
+            register(order.getOrderId(), order.getUid(), order.getSymbol(), order.getSide(), order.getLeverage(),
+                    order.getTpPrice(), order.getSlPrice());
+            onFill(order.getOrderId(), volume);
+            restored++;
+        }
+        executor.execute(() -> retire(closed));
+        log.info("Restored {} TP/SL triggers from {} orders", restored, orders.size());
+    }
+
+    // Cancelled or rejected; legs already armed by fills keep protecting the filled part
+    public void forget(long orderId) {
+        executor.execute(() -> {
+            Trigger trigger = triggers.get(orderId);
+            if (trigger != null && trigger.armedVolume == 0) {
+                triggers.remove(orderId);
+                retire(List.of(orderId));
+            }
+        });
+    }
+
+    public void onFill(long orderId, long volume) {
+        executor.execute(() -> {
+            Trigger trigger = triggers.get(orderId);
+            if (trigger == null) {
+                return;
+            }
+            if (trigger.armedVolume == 0) {
+                SymbolTriggers symbol = bySymbol.getIfAbsentPut(trigger.symbolId, SymbolTriggers::new);
+                // Long: TP above, SL below. Short: the other way round
+                if (trigger.tpPrice > 0) {
+                    (trigger.direction > 0 ? symbol.rising : symbol.falling).add(trigger.tpPrice, orderId);
+                }
+                if (trigger.slPrice > 0) {
+                    (trigger.direction > 0 ? symbol.falling : symbol.rising).add(trigger.slPrice, orderId);
+                }
+            }
+            trigger.armedVolume += volume;
+        });
+    }
+
+    /**
+     * @param tickNanos {@link System#nanoTime()} when the price was received
+     */
+    public void onPrice(int symbolId, long price, long tickNanos) {
+        executor.execute(() -> evaluate(symbolId, price, tickNanos));
+    }
+
+    private void evaluate(int symbolId, long price, long tickNanos) {
+        SymbolTriggers symbol = bySymbol.get(symbolId);
+        if (symbol == null) {
+            return;
+        }
+        List<ApiPlaceOrder> batch = new ArrayList<>();
+        List<OrderEntity> entities = new ArrayList<>();
+        // Signed open volume per user, net of the reduce orders already in this batch: the book only
+        // catches up once the exchange fills them
+        LongLongHashMap openByUid = new LongLongHashMap();
+        List<Long> retired = new ArrayList<>();
+        fire(symbol.rising, price, openByUid, batch, entities, retired);
+        fire(symbol.falling, price, openByUid, batch, entities, retired);
+        if (batch.isEmpty()) {
+            retire(retired);
+            return;
+        }
+
+        // Journaled first so their fills and rejects have a row to land on
+        orderJournal.appendAll(entities);
+        for (int from = 0; from < batch.size(); from += config.getMaxBatchSize()) {
+            exchangeApi.submitCommandsSync(batch.subList(from, Math.min(batch.size(), from + config.getMaxBatchSize())));
+        }
+        long latencyNanos = System.nanoTime() - tickNanos;
+        for (int i = 0; i < batch.size(); i++) {
+            triggerLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+        firedCounter.increment(batch.size());
+        log.info("Submitted {} TP/SL reduce orders for symbol {} at {}", batch.size(), symbolId, price);
+        retire(retired);
+    }
+
+    private void fire(PriceTriggerHeap heap, long price, LongLongHashMap openByUid, List<ApiPlaceOrder> batch,
+            List<OrderEntity> entities, List<Long> retired) {
+        while (heap.crossed(price)) {
+            long orderId = heap.peekOrderId();
+            heap.poll();
+            // Removing the trigger also retires the other leg still in the opposite heap
+            Trigger trigger = triggers.remove(orderId);
+            if (trigger == null) {
+                continue;
+            }
+            retired.add(orderId);
+            long open = openByUid.getIfAbsentPut(trigger.uid, () ->
+                    positionBook.openVolume(trigger.uid, trigger.symbolId, 1)
+                            - positionBook.openVolume(trigger.uid, trigger.symbolId, -1));
+            ApiPlaceOrder reduce = reduceOrder(trigger, price, Math.max(0, open * trigger.direction));
+            if (reduce == null) {
+                skippedCounter.increment();
+                continue;
+            }
+            openByUid.put(trigger.uid, open - reduce.size * trigger.direction);
+            batch.add(reduce);
+            entities.add(reduceEntity(trigger, reduce));
+        }
+    }
+
+    // Cleared on the order rows, so a restart does not rebuild triggers that fired or were cancelled
+    private void retire(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        try {
+            // A row placed moments ago may still be in the journal only
+            orderJournal.drain();
+            orderRepository.clearTriggers(orderIds);
+        } catch (RuntimeException e) {
+            log.warn("Failed to clear the TP/SL of orders {}: {}", orderIds, e.getMessage());
+        }
+    }
+
+    // openVolume: what is still open in the trigger's direction once the batch's earlier reduces fill
+    private ApiPlaceOrder reduceOrder(Trigger trigger, long price, long openVolume) {
+        // Never more than is still open, so neither a position closed by hand nor a second leg
+        // crossing on the same tick flips it
+        long size = Math.min(trigger.armedVolume, openVolume);
+        if (size <= 0) {
+            return null;
+        }
+        boolean sell = trigger.direction > 0;
+        long slippage = price * config.getSlippageBps() / 10_000;
+        long limit = sell ? Math.max(1, price - slippage) : price + slippage;
+        return ApiPlaceOrder.builder()
+                .orderId(idGenerator.nextId())
+                .uid(trigger.uid)
+                .symbol(trigger.symbolId)
+                .action(sell ? OrderAction.ASK : OrderAction.BID)
+                .orderType(OrderType.IOC)
+                .price(limit)
+                .reservePrice(limit)
+                .size(size)
+                .build();
+    }
+
+    private OrderEntity reduceEntity(Trigger trigger, ApiPlaceOrder reduce) {
+        Date now = new Date();
+        return OrderEntity.builder()
+                .orderId(reduce.orderId)
+                .uid(reduce.uid)
+                .symbol(trigger.pair)
+                .type("MARKET")
+                .side(reduce.action == OrderAction.ASK ? "SELL" : "BUY")
+                .price(reduce.price)
+                .sizeBase(reduce.size)
+                .leverage(trigger.leverage)
+                .status("PENDING")
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
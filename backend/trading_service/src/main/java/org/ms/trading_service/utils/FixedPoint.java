@@ -0,0 +1,101 @@
+package org.ms.trading_service.utils;
+
+/**
+ * Conversions between decimal strings and scaled longs (value * 10^scale) without going through
+ * BigDecimal. Parsing allocates nothing; digits beyond the requested scale are truncated toward
+ * zero, the same as {@code new BigDecimal(s).scaleByPowerOfTen(scale).longValue()}.
+ */
+public final class FixedPoint {
+
+    // Prices sent to the exchange carry two decimals
+    public static final int PRICE_SCALE = 2;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    public static long pow10(int scale) {
+        return POWERS_OF_TEN[scale];
+    }
+
+    // Number of decimals of a scale factor such as lotSizeScale (1000 -> 3)
+    public static int scaleOf(long scaleFactor) {
+        for (int scale = 0; scale < POWERS_OF_TEN.length; scale++) {
+            if (POWERS_OF_TEN[scale] == scaleFactor) {
+                return scale;
+            }
+        }
+        throw new IllegalArgumentException("Not a power of ten: " + scaleFactor);
+    }
+
+    public static long parse(CharSequence value, int scale) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+
+        long result = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid decimal: " + value);
+            }
+            digits++;
+            if (fractionDigits >= 0) {
+                if (fractionDigits == scale) {
+                    continue;
+                }
+                fractionDigits++;
+            }
+            result = Math.addExact(Math.multiplyExact(result, 10L), c - '0');
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid decimal: " + value);
+        }
+
+        int missingDigits = scale - Math.max(fractionDigits, 0);
+        result = Math.multiplyExact(result, POWERS_OF_TEN[missingDigits]);
+        return negative ? -result : result;
+    }
+
+    public static double toDouble(long scaled, int scale) {
+        return (double) scaled / POWERS_OF_TEN[scale];
+    }
+
+    public static StringBuilder append(StringBuilder out, long scaled, int scale) {
+        if (scaled < 0) {
+            out.append('-');
+        }
+        long abs = Math.abs(scaled);
+        out.append(abs / POWERS_OF_TEN[scale]);
+        if (scale > 0) {
+            out.append('.');
+            long fraction = abs % POWERS_OF_TEN[scale];
+            for (int i = scale - 1; i >= 0; i--) {
+                out.append((char) ('0' + (fraction / POWERS_OF_TEN[i]) % 10));
+            }
+        }
+        return out;
+    }
+
+    public static String format(long scaled, int scale) {
+        return append(new StringBuilder(20 + scale), scaled, scale).toString();
+    }
+}
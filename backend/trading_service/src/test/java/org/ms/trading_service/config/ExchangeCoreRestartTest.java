@@ -0,0 +1,133 @@
+package org.ms.trading_service.config;
+
+import exchange.core2.core.ExchangeApi;
+import exchange.core2.core.ExchangeCore;
+import exchange.core2.core.IEventsHandler;
+import exchange.core2.core.common.CoreSymbolSpecification;
+import exchange.core2.core.common.CoreWaitStrategy;
+import exchange.core2.core.common.OrderAction;
+import exchange.core2.core.common.OrderType;
+import exchange.core2.core.common.SymbolType;
+import exchange.core2.core.common.api.ApiAddUser;
+import exchange.core2.core.common.api.ApiAdjustUserBalance;
+import exchange.core2.core.common.api.ApiPlaceOrder;
+import exchange.core2.core.common.api.binary.BatchAddSymbolsCommand;
+import exchange.core2.core.common.cmd.CommandResultCode;
+import exchange.core2.core.common.config.ExchangeConfiguration;
+import exchange.core2.core.common.config.InitialStateConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ms.trading_service.mapper.OrderBookMapper;
+import org.ms.trading_service.service.ConflatingPublisher;
+import org.ms.trading_service.service.OrderBookCache;
+import org.ms.trading_service.service.OrderBookPublisher;
+import org.ms.trading_service.service.PairService;
+import org.ms.trading_service.service.PositionBook;
+import org.ms.trading_service.service.PositionSeeder;
+import org.ms.trading_service.service.ReservedMarginLedger;
+import org.ms.trading_service.service.persistence.ExchangeSnapshotIndex;
+import org.ms.trading_service.service.persistence.TradePersistenceStage;
+import org.ms.trading_service.service.trigger.TpSlTriggerEngine;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ExchangeCoreRestartTest {
+
+    private static final int SYMBOL = 1;
+    private static final int QUOTE = 2;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void placesOrdersAcrossRestarts() throws Exception {
+        for (int run = 0; run < 3; run++) {
+            TradePersistenceStage persistence = mock(TradePersistenceStage.class);
+            ExchangeCore core = start(persistence);
+            ExchangeApi api = core.getApi();
+            if (run == 0) {
+                setUp(api);
+            }
+
+            long bidId = run * 2L + 1;
+            assertEquals(CommandResultCode.SUCCESS, submit(api, order(bidId, 1L, OrderAction.BID, OrderType.GTC)));
+            assertEquals(CommandResultCode.SUCCESS, submit(api, order(bidId + 1, 2L, OrderAction.ASK, OrderType.IOC)));
+            // Every run traded one lot against the bid it placed, the book carries no leftovers
+            assertEquals(0, api.requestOrderBookAsync(SYMBOL, 10).get(10, TimeUnit.SECONDS).totalOrderBookVolumeBid());
+            core.shutdown();
+
+            // Trades replayed from the journal of earlier runs are not persisted a second time
+            verify(persistence, times(1)).enqueue(bidId, 1L, 10_000L);
+            verify(persistence, times(1)).enqueue(bidId + 1, 1L, 10_000L);
+            verify(persistence, times(2)).enqueue(anyLong(), anyLong(), anyLong());
+        }
+    }
+
+    private ExchangeCore start(TradePersistenceStage persistence) {
+        ExchangePersistenceConfig persistenceConfig = new ExchangePersistenceConfig();
+        persistenceConfig.setEnabled(true);
+        persistenceConfig.setDirectory(directory.toString());
+        ExchangePerformanceConfig performanceConfig = new ExchangePerformanceConfig();
+        performanceConfig.setRingBufferSize(1024);
+        performanceConfig.setMsgsInGroupLimit(64);
+        performanceConfig.setWaitStrategy(CoreWaitStrategy.BLOCKING);
+        ExchangeSnapshotIndex snapshotIndex = new ExchangeSnapshotIndex(persistenceConfig);
+
+        ExchangeCoreConfig config = new ExchangeCoreConfig();
+        InitialStateConfiguration initialState = config.initialStateConfiguration(persistenceConfig,
+                performanceConfig, snapshotIndex);
+        ExchangeConfiguration exchangeConfiguration = config.exchangeConfiguration(initialState,
+                config.serializationConfiguration(persistenceConfig),
+                config.performanceConfiguration(performanceConfig));
+        IEventsHandler handler = config.iEventsHandler(mock(ConflatingPublisher.class), mock(OrderBookMapper.class),
+                mock(OrderBookCache.class), persistence, mock(ReservedMarginLedger.class),
+                mock(OrderBookPublisher.class), mock(PositionBook.class), mock(PositionSeeder.class),
+                mock(TpSlTriggerEngine.class),
+                mock(PairService.class));
+        return config.exchangeCore(exchangeConfiguration, handler, new SimpleMeterRegistry(), persistenceConfig,
+                snapshotIndex);
+    }
+
+    private static void setUp(ExchangeApi api) throws Exception {
+        assertEquals(CommandResultCode.SUCCESS, api.submitBinaryDataAsync(new BatchAddSymbolsCommand(
+                CoreSymbolSpecification.builder()
+                        .symbolId(SYMBOL)
+                        .baseCurrency(3)
+                        .quoteCurrency(QUOTE)
+                        .baseScaleK(1)
+                        .quoteScaleK(1)
+                        .type(SymbolType.FUTURES_CONTRACT)
+                        .build())).get(10, TimeUnit.SECONDS));
+        for (long uid = 1; uid <= 2; uid++) {
+            assertEquals(CommandResultCode.SUCCESS, submit(api, ApiAddUser.builder().uid(uid).build()));
+            assertEquals(CommandResultCode.SUCCESS, submit(api, ApiAdjustUserBalance.builder()
+                    .uid(uid).currency(QUOTE).amount(1_000_000L).transactionId(uid).build()));
+        }
+    }
+
+    private static ApiPlaceOrder order(long orderId, long uid, OrderAction action, OrderType type) {
+        return ApiPlaceOrder.builder()
+                .orderId(orderId)
+                .uid(uid)
+                .symbol(SYMBOL)
+                .action(action)
+                .orderType(type)
+                .price(10_000L)
+                .reservePrice(10_000L)
+                .size(1L)
+                .build();
+    }
+
+    private static CommandResultCode submit(ExchangeApi api, exchange.core2.core.common.api.ApiCommand command)
+            throws Exception {
+        return api.submitCommandAsync(command).get(10, TimeUnit.SECONDS);
+    }
+}
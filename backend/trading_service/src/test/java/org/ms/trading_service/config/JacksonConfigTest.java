@@ -0,0 +1,54 @@
+package org.ms.trading_service.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exchange.core2.core.IEventsHandler;
+import exchange.core2.core.common.OrderAction;
+import exchange.core2.core.common.OrderType;
+import exchange.core2.core.common.api.ApiPlaceOrder;
+import exchange.core2.core.common.cmd.CommandResultCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JacksonConfigTest {
+
+    private static final long ORDER_ID = (1L << 53) + 1;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JacksonConfig().orderIdModule());
+
+    @Test
+    void tradeEventOrderIdsAreStrings() {
+        IEventsHandler.TradeEvent event = new IEventsHandler.TradeEvent(1, 5, ORDER_ID, 7, OrderAction.BID, true, 0,
+                List.of(new IEventsHandler.Trade(ORDER_ID + 1, 8, true, 100, 5)));
+
+        JsonNode json = objectMapper.valueToTree(event);
+
+        assertEquals(String.valueOf(ORDER_ID), json.get("takerOrderId").textValue());
+        assertEquals(String.valueOf(ORDER_ID + 1), json.get("trades").get(0).get("makerOrderId").textValue());
+        assertEquals(7, json.get("takerUid").longValue());
+    }
+
+    @Test
+    void rejectAndReduceEventOrderIdsAreStrings() {
+        JsonNode reject = objectMapper.valueToTree(new IEventsHandler.RejectEvent(1, 5, 100, ORDER_ID, 7, 0));
+        JsonNode reduce = objectMapper.valueToTree(new IEventsHandler.ReduceEvent(1, 5, true, 100, ORDER_ID, 7, 0));
+
+        assertEquals(String.valueOf(ORDER_ID), reject.get("orderId").textValue());
+        assertEquals(String.valueOf(ORDER_ID), reduce.get("orderId").textValue());
+        assertEquals(7, reduce.get("uid").longValue());
+    }
+
+    @Test
+    void commandResultOrderIdIsString() {
+        ApiPlaceOrder placeOrder = ApiPlaceOrder.builder().orderId(ORDER_ID).uid(7).symbol(1).price(100).size(5)
+                .action(OrderAction.ASK).orderType(OrderType.GTC).build();
+
+        JsonNode json = objectMapper.valueToTree(
+                new IEventsHandler.ApiCommandResult(placeOrder, CommandResultCode.SUCCESS, 3));
+
+        assertEquals(String.valueOf(ORDER_ID), json.get("command").get("orderId").textValue());
+    }
+}
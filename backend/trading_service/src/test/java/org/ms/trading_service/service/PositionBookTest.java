@@ -0,0 +1,133 @@
+package org.ms.trading_service.service;
+
+import exchange.core2.core.IEventsHandler;
+import exchange.core2.core.common.OrderAction;
+import exchange.core2.core.common.config.InitialStateConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionBookTest {
+
+    private static final int SYMBOL = 1;
+    private static final long TAKER = 10L;
+    private static final long MAKER = 20L;
+
+    private PositionBook book;
+
+    @BeforeEach
+    void setUp() {
+        book = new PositionBook(InitialStateConfiguration.cleanStart("test"), new SimpleMeterRegistry());
+    }
+
+    private static IEventsHandler.TradeEvent trade(long takerOrderId, OrderAction takerAction, long makerOrderId,
+            long price, long volume) {
+        return new IEventsHandler.TradeEvent(SYMBOL, volume, takerOrderId, TAKER, takerAction, true, 0L,
+                List.of(new IEventsHandler.Trade(makerOrderId, MAKER, true, price, volume)));
+    }
+
+    @Test
+    void takerAndMakerOpenOppositePositions() {
+        book.registerOrder(1L, 10);
+        book.registerOrder(2L, 5);
+        book.onTrade(trade(1L, OrderAction.BID, 2L, 10_000, 4));
+
+        PositionBook.PositionView taker = book.positionsOf(TAKER).get(0);
+        assertEquals(1, taker.direction());
+        assertEquals(10_000, taker.entryPrice());
+        // 40000 notional at 10x
+        assertEquals(4_000, taker.margin());
+        assertEquals(9_000, taker.liquidationPrice());
+
+        PositionBook.PositionView maker = book.positionsOf(MAKER).get(0);
+        assertEquals(-1, maker.direction());
+        assertEquals(12_000, maker.liquidationPrice());
+        assertEquals(-40_000, maker.unrealizedPnl(20_000));
+        assertEquals(10_000, book.lastTradePrice(SYMBOL));
+    }
+
+    @Test
+    void oppositeFillClosesThenFlips() {
+        book.registerOrder(1L, 10);
+        book.onTrade(trade(1L, OrderAction.BID, 2L, 10_000, 4));
+        book.registerOrder(3L, 2);
+        book.onTrade(trade(3L, OrderAction.ASK, 4L, 11_000, 1));
+
+        PositionBook.PositionView reduced = book.positionsOf(TAKER).get(0);
+        assertEquals(3, reduced.openVolume());
+        assertEquals(10_000, reduced.entryPrice());
+        assertEquals(3_000, reduced.margin());
+
+        book.registerOrder(5L, 2);
+        book.onTrade(trade(5L, OrderAction.ASK, 6L, 12_000, 5));
+        PositionBook.PositionView flipped = book.positionsOf(TAKER).get(0);
+        assertEquals(-1, flipped.direction());
+        assertEquals(2, flipped.openVolume());
+        assertEquals(12_000, flipped.entryPrice());
+        assertEquals(12_000, flipped.margin());
+
+        book.onTrade(trade(7L, OrderAction.BID, 8L, 12_000, 2));
+        assertTrue(book.positionsOf(TAKER).isEmpty());
+    }
+
+    @Test
+    void liquidationIndexReturnsOnlyCrossedPositions() {
+        book.registerOrder(1L, 10);
+        book.registerOrder(2L, 5);
+        book.onTrade(trade(1L, OrderAction.BID, 2L, 10_000, 4));
+
+        assertTrue(book.liquidationCandidates(SYMBOL, 9_500).isEmpty());
+        assertEquals(List.of(TAKER), book.liquidationCandidates(SYMBOL, 9_000).stream()
+                .map(PositionBook.PositionView::uid).toList());
+        assertEquals(List.of(MAKER), book.liquidationCandidates(SYMBOL, 12_500).stream()
+                .map(PositionBook.PositionView::uid).toList());
+
+        // Closing the position removes it from the index
+        book.onTrade(trade(3L, OrderAction.ASK, 4L, 10_000, 4));
+        assertTrue(book.liquidationCandidates(SYMBOL, 1).isEmpty());
+        assertTrue(book.liquidationCandidates(SYMBOL, 1_000_000).isEmpty());
+    }
+
+    @Test
+    void snapshotRestoreWaitsForSeed() {
+        PositionBook restored = new PositionBook(InitialStateConfiguration.lastKnownStateFromJournal("test", 42L, 100L),
+                new SimpleMeterRegistry());
+        assertTrue(restored.needsSeed(TAKER));
+        restored.onTrade(trade(1L, OrderAction.BID, 2L, 10_000, 4));
+        assertTrue(restored.positionsOf(TAKER).isEmpty());
+
+        restored.seed(TAKER, null, restored.tradeSequence());
+        restored.onTrade(trade(1L, OrderAction.BID, 2L, 10_000, 4));
+        assertEquals(4, restored.positionsOf(TAKER).get(0).openVolume());
+    }
+
+    @Test
+    void fillsAfterTheSeedReportAreApplied() {
+        PositionBook restored = new PositionBook(InitialStateConfiguration.lastKnownStateFromJournal("test", 42L, 100L),
+                new SimpleMeterRegistry());
+        restored.registerOrder(1L, 10);
+        // Already in the report
+        restored.onTrade(trade(1L, OrderAction.BID, 2L, 10_000, 4));
+        long reportSequence = restored.tradeSequence();
+        // Between the report and the seed, its order completes before the seed arrives
+        restored.registerOrder(3L, 10);
+        restored.onTrade(trade(3L, OrderAction.BID, 4L, 12_000, 2));
+        assertArrayEquals(new long[] {TAKER, MAKER}, Arrays.stream(restored.takeSeedRequests()).sorted().toArray());
+        assertEquals(0, restored.takeSeedRequests().length);
+
+        // The report holds the first fill, null stands in for a report that saw it closed again
+        restored.seed(TAKER, null, reportSequence);
+        assertEquals(2, restored.openVolume(TAKER, SYMBOL, 1));
+        assertEquals(2_400, restored.positionsOf(TAKER).get(0).margin());
+        assertFalse(restored.needsSeed(TAKER));
+        assertTrue(restored.needsSeed(MAKER));
+    }
+}
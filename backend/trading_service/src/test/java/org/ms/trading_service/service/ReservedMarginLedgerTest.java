@@ -0,0 +1,69 @@
+package org.ms.trading_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.repository.OrderRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReservedMarginLedgerTest {
+
+    private OrderRepository orderRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ReservedMarginLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ledger = new ReservedMarginLedger(orderRepository, meterRegistry);
+    }
+
+    @Test
+    void marginRoundsUp() {
+        // price 100.00 (x100) * size 1.5 (x1000) / 3x leverage / lot scale 1000
+        assertEquals(5_000, ReservedMarginLedger.marginOf(10_000, 1_500, 3, 1_000));
+        assertEquals(1, ReservedMarginLedger.marginOf(1, 1, 10, 1_000));
+    }
+
+    @Test
+    void releaseIsIdempotent() {
+        ledger.reserve(1L, 7L, 500);
+        ledger.reserve(2L, 7L, 300);
+        ledger.release(1L);
+        ledger.release(1L);
+
+        assertEquals(300, ledger.reservedOf(7L));
+    }
+
+    @Test
+    void reconcileCorrectsOnlyPersistentDrift() {
+        when(orderRepository.findByStatus("PENDING")).thenReturn(List.of(pendingOrder(1L, 7L)));
+
+        ledger.reconcile();
+        assertEquals(0, ledger.reservedOf(7L));
+        assertEquals(100, meterRegistry.get("trading.margin.ledger.drift").gauge().value());
+
+        ledger.reconcile();
+        assertEquals(100, ledger.reservedOf(7L));
+    }
+
+    private static OrderEntity pendingOrder(long orderId, long uid) {
+        return OrderEntity.builder()
+                .orderId(orderId)
+                .uid(uid)
+                .symbol(PairEntity.builder().id(1).lotSizeScale(1_000L).build())
+                .price(10_000L)
+                .sizeBase(10L)
+                .leverage(1L)
+                .status("PENDING")
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package org.ms.trading_service.service.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ms.trading_service.config.OrderJournalConfig;
+import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.repository.OrderRepository;
+import org.ms.trading_service.service.SymbolRegistry;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final PairEntity pair = PairEntity.builder().id(3).pairSymbol("BTC-USDT").build();
+
+    @Test
+    void undrainedOrdersAreLoadedOnRestart() throws Exception {
+        OrderRepository failing = mock(OrderRepository.class);
+        when(failing.saveAll(any())).thenThrow(new IllegalStateException("db down"));
+        OrderJournal crashed = journal(failing);
+        crashed.start();
+        crashed.appendAll(List.of(order(1, 10_000L), order(2, null), order(3, 12_000L)));
+        assertThrows(IllegalStateException.class, crashed::drain);
+        crashed.stop();
+
+        List<OrderEntity> saved = new ArrayList<>();
+        OrderRepository recovered = recordingRepository(saved);
+        // Order 1 made it to the DB before the crash, only its checkpoint was lost
+        when(recovered.findAllById(any())).thenReturn(List.of(order(1, 10_000L)));
+        OrderJournal restarted = journal(recovered);
+        restarted.start();
+
+        assertEquals(List.of(2L, 3L), saved.stream().map(OrderEntity::getOrderId).toList());
+        OrderEntity second = saved.get(0);
+        assertNull(second.getTpPrice());
+        assertEquals(7L, second.getUid());
+        assertEquals(pair, second.getSymbol());
+        assertEquals("BUY", second.getSide());
+        assertEquals("PENDING", second.getStatus());
+        assertEquals(0, restarted.drain());
+        restarted.stop();
+    }
+
+    @Test
+    void drainedSegmentsAreDeleted() throws Exception {
+        List<OrderEntity> saved = new ArrayList<>();
+        OrderJournal journal = journal(recordingRepository(saved));
+        journal.start();
+        for (int i = 0; i < 30_000; i++) {
+            journal.append(order(i, null));
+        }
+        assertEquals(30_000, journal.drain());
+        assertEquals(29_999L, saved.get(saved.size() - 1).getOrderId());
+        journal.stop();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            // The segment being written to and the checkpoint
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void failedAppendLeavesTheJournalUntouched() throws Exception {
+        List<OrderEntity> saved = new ArrayList<>();
+        OrderJournal journal = journal(recordingRepository(saved));
+        journal.start();
+        journal.append(order(1, null));
+        OrderEntity unserializable = order(3, null);
+        unserializable.setUid(null);
+        assertThrows(NullPointerException.class, () -> journal.appendAll(List.of(order(2, null), unserializable)));
+        journal.append(order(4, null));
+
+        assertEquals(2, journal.drain());
+        assertEquals(List.of(1L, 4L), saved.stream().map(OrderEntity::getOrderId).toList());
+        journal.stop();
+    }
+
+    @Test
+    void ordersCommittedBeforeALostCheckpointAreNotLoadedTwice() throws Exception {
+        Map<Long, OrderEntity> database = new LinkedHashMap<>();
+        List<Long> inserts = new ArrayList<>();
+        OrderJournal crashed = journal(databaseRepository(database, inserts));
+        crashed.start();
+        crashed.appendAll(List.of(order(1, null), order(2, null)));
+        // The checkpoint cannot be written, as if the process died right after the commit
+        Path checkpoint = Files.createDirectory(directory.resolve("checkpoint"));
+        assertThrows(UncheckedIOException.class, crashed::drain);
+        crashed.stop();
+        assertEquals(List.of(1L, 2L), inserts);
+
+        Files.delete(checkpoint);
+        OrderJournal restarted = journal(databaseRepository(database, inserts));
+        restarted.start();
+        restarted.append(order(3, null));
+        assertEquals(1, restarted.drain());
+        restarted.stop();
+
+        assertEquals(List.of(1L, 2L, 3L), inserts);
+    }
+
+    private OrderJournal journal(OrderRepository orderRepository) {
+        OrderJournalConfig config = new OrderJournalConfig();
+        config.setDirectory(directory.toString());
+        config.setSegmentSizeMb(1);
+        config.setDrainIntervalMs(10_000L);
+
+        SymbolRegistry symbolRegistry = mock(SymbolRegistry.class);
+        when(symbolRegistry.getPair(anyInt())).thenReturn(pair);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        return new OrderJournal(config, orderRepository, symbolRegistry, transactionTemplate,
+                new SimpleMeterRegistry());
+    }
+
+    private static OrderRepository recordingRepository(List<OrderEntity> saved) {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.saveAll(any())).thenAnswer(invocation -> {
+            invocation.<Iterable<OrderEntity>>getArgument(0).forEach(saved::add);
+            return List.of();
+        });
+        return orderRepository;
+    }
+
+    // Inserts land in database, lookups by id see them like the real table would
+    private static OrderRepository databaseRepository(Map<Long, OrderEntity> database, List<Long> inserts) {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.saveAll(any())).thenAnswer(invocation -> {
+            for (OrderEntity order : invocation.<Iterable<OrderEntity>>getArgument(0)) {
+                database.put(order.getOrderId(), order);
+                inserts.add(order.getOrderId());
+            }
+            return List.of();
+        });
+        when(orderRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<OrderEntity> found = new ArrayList<>();
+            for (Long orderId : invocation.<Iterable<Long>>getArgument(0)) {
+                if (database.containsKey(orderId)) {
+                    found.add(database.get(orderId));
+                }
+            }
+            return found;
+        });
+        return orderRepository;
+    }
+
+    private OrderEntity order(long orderId, Long tpPrice) {
+        return OrderEntity.builder()
+                .orderId(orderId)
+                .uid(7L)
+                .symbol(pair)
+                .type("LIMIT")
+                .side("BUY")
+                .price(10_500L)
+                .sizeBase(250L)
+                .leverage(5L)
+                .tpPrice(tpPrice)
+                .slPrice(9_000L)
+                .createdAt(new Date())
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package org.ms.trading_service.service.trigger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceTriggerHeapTest {
+
+    @Test
+    void risingFiresLowestPricesFirst() {
+        PriceTriggerHeap heap = new PriceTriggerHeap(true);
+        for (int i = 200; i > 0; i--) {
+            heap.add(10_000 + i, i);
+        }
+        assertFalse(heap.crossed(10_000));
+        long fired = 0;
+        while (heap.crossed(10_050)) {
+            assertEquals(fired + 1, heap.peekOrderId());
+            heap.poll();
+            fired++;
+        }
+        assertEquals(50, fired);
+        assertEquals(150, heap.size());
+    }
+
+    @Test
+    void fallingFiresHighestPricesFirst() {
+        PriceTriggerHeap heap = new PriceTriggerHeap(false);
+        heap.add(9_000, 1);
+        heap.add(9_500, 2);
+        heap.add(8_000, 3);
+        assertFalse(heap.crossed(9_501));
+        assertTrue(heap.crossed(9_500));
+        assertEquals(2, heap.peekOrderId());
+        heap.poll();
+        assertTrue(heap.crossed(8_500));
+        assertEquals(1, heap.peekOrderId());
+        heap.poll();
+        assertFalse(heap.crossed(8_500));
+    }
+}
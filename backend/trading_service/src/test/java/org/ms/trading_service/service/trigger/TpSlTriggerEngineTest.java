@@ -0,0 +1,176 @@
+package org.ms.trading_service.service.trigger;
+
+import exchange.core2.core.ExchangeApi;
+import exchange.core2.core.IEventsHandler;
+import exchange.core2.core.common.OrderAction;
+import exchange.core2.core.common.OrderType;
+import exchange.core2.core.common.api.ApiPlaceOrder;
+import exchange.core2.core.common.config.InitialStateConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.ms.trading_service.config.TpSlTriggerConfig;
+import org.ms.trading_service.entity.OrderEntity;
+import org.ms.trading_service.entity.PairEntity;
+import org.ms.trading_service.repository.OrderRepository;
+import org.ms.trading_service.service.PositionBook;
+import org.ms.trading_service.service.PositionSeeder;
+import org.ms.trading_service.service.persistence.OrderJournal;
+import org.ms.trading_service.utils.SnowflakeIdGenerator;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TpSlTriggerEngineTest {
+
+    private static final int SYMBOL = 1;
+    private static final long UID = 10L;
+
+    private final PairEntity pair = PairEntity.builder().id(SYMBOL).pairSymbol("BTC-USDT").build();
+    private final ExchangeApi exchangeApi = mock(ExchangeApi.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final PositionSeeder positionSeeder = mock(PositionSeeder.class);
+    private final PositionBook positionBook = new PositionBook(InitialStateConfiguration.cleanStart("test"),
+            new SimpleMeterRegistry());
+    private final TpSlTriggerEngine engine = new TpSlTriggerEngine(exchangeApi, positionBook, positionSeeder,
+            orderRepository, mock(OrderJournal.class), new SnowflakeIdGenerator(1, 0),
+            new TpSlTriggerConfig(), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void restoredTriggerIsArmedWithTheOpenVolume() {
+        // Long 4, then 1 closed by hand before the restart
+        openLong(4);
+        positionBook.onTrade(new IEventsHandler.TradeEvent(SYMBOL, 1, 3L, UID, OrderAction.ASK, true, 0L,
+                List.of(new IEventsHandler.Trade(4L, 20L, true, 10_500, 1))));
+        when(positionSeeder.seed(anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+        when(orderRepository.findWithTriggersByStatusIn(any())).thenReturn(List.of(
+                order(1L, "FILLED", "BUY", 12_000L, 9_000L),
+                // Its short position is gone, the trigger must not come back
+                order(5L, "FILLED", "SELL", 8_000L, null)));
+
+        engine.restore();
+        engine.onPrice(SYMBOL, 12_100, System.nanoTime());
+
+        ArgumentCaptor<List<ApiPlaceOrder>> batch = ArgumentCaptor.forClass(List.class);
+        verify(exchangeApi, timeout(2_000)).submitCommandsSync(batch.capture());
+        ApiPlaceOrder reduce = batch.getValue().get(0);
+        assertEquals(1, batch.getValue().size());
+        assertEquals(OrderAction.ASK, reduce.action);
+        assertEquals(OrderType.IOC, reduce.orderType);
+        assertEquals(3, reduce.size);
+        assertEquals(UID, reduce.uid);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void legsCrossingOnOneTickNeverCloseMoreThanIsOpen() {
+        openLong(4);
+        engine.register(1L, UID, pair, "BUY", 5L, null, 9_000L);
+        engine.register(3L, UID, pair, "BUY", 5L, null, 9_500L);
+        engine.onFill(1L, 2);
+        engine.onFill(3L, 2);
+        // 1 of the 4 closed by hand
+        positionBook.onTrade(new IEventsHandler.TradeEvent(SYMBOL, 1, 5L, UID, OrderAction.ASK, true, 0L,
+                List.of(new IEventsHandler.Trade(6L, 20L, true, 10_500, 1))));
+
+        engine.onPrice(SYMBOL, 8_900, System.nanoTime());
+
+        ArgumentCaptor<List<ApiPlaceOrder>> batch = ArgumentCaptor.forClass(List.class);
+        verify(exchangeApi, timeout(2_000)).submitCommandsSync(batch.capture());
+        assertEquals(3, batch.getValue().stream().mapToLong(reduce -> reduce.size).sum());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void restoredOrdersShareTheOpenVolume() {
+        openLong(4);
+        when(positionSeeder.seed(anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+        // Both filled 3, then 2 closed by hand: 4 open, not 6
+        when(orderRepository.findWithTriggersByStatusIn(any())).thenReturn(List.of(
+                order(1L, "FILLED", "BUY", null, 9_000L, 3L),
+                order(2L, "FILLED", "BUY", null, 9_500L, 3L)));
+
+        engine.restore();
+        engine.onPrice(SYMBOL, 8_900, System.nanoTime());
+
+        ArgumentCaptor<List<ApiPlaceOrder>> batch = ArgumentCaptor.forClass(List.class);
+        verify(exchangeApi, timeout(2_000)).submitCommandsSync(batch.capture());
+        assertEquals(List.of(3L, 1L), batch.getValue().stream().map(reduce -> reduce.size).toList());
+    }
+
+    @Test
+    void firedTriggerIsClearedOnItsOrder() {
+        openLong(4);
+        engine.register(1L, UID, pair, "BUY", 5L, 12_000L, 9_000L);
+        engine.onFill(1L, 4);
+
+        engine.onPrice(SYMBOL, 12_100, System.nanoTime());
+
+        verify(orderRepository, timeout(2_000)).clearTriggers(List.of(1L));
+    }
+
+    @Test
+    void restoredTriggerOfAClosedPositionIsCleared() {
+        when(positionSeeder.seed(anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+        when(orderRepository.findWithTriggersByStatusIn(any())).thenReturn(List.of(
+                order(5L, "FILLED", "SELL", 8_000L, null)));
+
+        engine.restore();
+
+        verify(orderRepository, timeout(2_000)).clearTriggers(List.of(5L));
+    }
+
+    @Test
+    void restoredPendingOrderWaitsForItsFill() {
+        when(positionSeeder.seed(anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+        when(orderRepository.findWithTriggersByStatusIn(any())).thenReturn(List.of(
+                order(1L, "PENDING", "BUY", null, 9_000L)));
+
+        engine.restore();
+        engine.onPrice(SYMBOL, 8_000, System.nanoTime());
+
+        verify(exchangeApi, after(300).never()).submitCommandsSync(anyList());
+    }
+
+    private void openLong(long volume) {
+        positionBook.onTrade(new IEventsHandler.TradeEvent(SYMBOL, volume, 100L, UID, OrderAction.BID, true, 0L,
+                List.of(new IEventsHandler.Trade(101L, 20L, true, 10_000, volume))));
+    }
+
+    private OrderEntity order(long orderId, String status, String side, Long tpPrice, Long slPrice) {
+        return order(orderId, status, side, tpPrice, slPrice, 4L);
+    }
+
+    private OrderEntity order(long orderId, String status, String side, Long tpPrice, Long slPrice, long sizeBase) {
+        return OrderEntity.builder()
+                .orderId(orderId)
+                .uid(UID)
+                .symbol(pair)
+                .type("LIMIT")
+                .side(side)
+                .price(10_000L)
+                .sizeBase(sizeBase)
+                .leverage(5L)
+                .tpPrice(tpPrice)
+                .slPrice(slPrice)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package org.ms.trading_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+
+  @Test
+  void parseMatchesBigDecimal() {
+    String[] values = {"0", "1", "100", "100.5", "100.55", "100.559", "0.001", ".5", "7.", "-12.345", "+3.14159",
+        "65000.123456789", "00012.30"};
+    for (String value : values) {
+      for (int scale = 0; scale <= 8; scale++) {
+        long expected = new BigDecimal(value).scaleByPowerOfTen(scale).longValue();
+        assertEquals(expected, FixedPoint.parse(value, scale), value + " at scale " + scale);
+      }
+    }
+  }
+
+  @Test
+  void parseRejectsMalformedAndOverflow() {
+    assertThrows(NumberFormatException.class, () -> FixedPoint.parse("", 2));
+    assertThrows(NumberFormatException.class, () -> FixedPoint.parse("-", 2));
+    assertThrows(NumberFormatException.class, () -> FixedPoint.parse("1.2.3", 2));
+    assertThrows(NumberFormatException.class, () -> FixedPoint.parse("1e5", 2));
+    assertThrows(ArithmeticException.class, () -> FixedPoint.parse("99999999999999999999", 2));
+  }
+
+  @Test
+  void formatRoundTrips() {
+    assertEquals("100.50", FixedPoint.format(10_050, 2));
+    assertEquals("-0.005", FixedPoint.format(-5, 3));
+    assertEquals("42", FixedPoint.format(42, 0));
+    assertEquals(3, FixedPoint.scaleOf(1_000));
+  }
+}
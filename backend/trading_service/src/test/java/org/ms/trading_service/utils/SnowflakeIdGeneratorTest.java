@@ -0,0 +1,71 @@
+package org.ms.trading_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+  @Test
+  void idsStayUniqueAndIncreasingUnderContention() throws InterruptedException {
+    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, 1_704_067_200_000L);
+    int threads = 4;
+    int idsPerThread = 1_000_000;
+    long[][] ids = new long[threads][idsPerThread];
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      long[] out = ids[t];
+      workers[t] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < idsPerThread; i++) {
+          out[i] = generator.nextId();
+        }
+      });
+      workers[t].start();
+    }
+
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    long[] all = new long[threads * idsPerThread];
+    for (int t = 0; t < threads; t++) {
+      for (int i = 1; i < idsPerThread; i++) {
+        assertTrue(ids[t][i] > ids[t][i - 1], "ids must increase within a thread");
+      }
+      System.arraycopy(ids[t], 0, all, t * idsPerThread, idsPerThread);
+    }
+    Arrays.sort(all);
+    for (int i = 1; i < all.length; i++) {
+      assertTrue(all[i] != all[i - 1], "duplicate id " + all[i]);
+    }
+  }
+
+  @Test
+  void exhaustedSequenceAndClockRollbackMoveForward() {
+    AtomicLong clock = new AtomicLong(1_000);
+    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0, clock::get);
+
+    long previous = generator.nextId();
+    for (int i = 0; i < 10_000; i++) {
+      long id = generator.nextId();
+      assertTrue(id > previous);
+      previous = id;
+    }
+
+    clock.set(500);
+    assertTrue(generator.nextId() > previous);
+    assertEquals(1, (previous >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID);
+  }
+}
@@ -5,8 +5,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.ms.user_service.dto.User;
+import org.ms.user_service.grpc.AddressUid;
 import org.ms.user_service.grpc.GetUidByAddressRequest;
 import org.ms.user_service.grpc.GetUidByAddressResponse;
+import org.ms.user_service.grpc.GetUidsByAddressesRequest;
+import org.ms.user_service.grpc.GetUidsByAddressesResponse;
 import org.ms.user_service.grpc.UserServiceGrpc;
 import org.ms.user_service.service.UserService;
 
@@ -31,4 +34,21 @@ public class UserGrpcService extends UserServiceGrpc.UserServiceImplBase {
                     .asRuntimeException());
         }
     }
+
+    @Override
+    public void getUidsByAddresses(GetUidsByAddressesRequest request,
+            StreamObserver<GetUidsByAddressesResponse> responseObserver) {
+        log.info("Received getUidsByAddresses request for {} addresses", request.getAddressesCount());
+        try {
+            GetUidsByAddressesResponse.Builder response = GetUidsByAddressesResponse.newBuilder();
+            userService.getUidsByAddresses(request.getAddressesList()).forEach((address, uid) -> response
+                    .addUids(AddressUid.newBuilder().setAddress(address).setUid(uid)));
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            responseObserver.onError(io.grpc.Status.INTERNAL
+                    .withDescription(String.format("Failed to get uids for %d addresses", request.getAddressesCount()))
+                    .asRuntimeException());
+        }
+    }
 }
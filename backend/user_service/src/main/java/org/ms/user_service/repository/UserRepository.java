@@ -1,5 +1,7 @@
 package org.ms.user_service.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -9,4 +11,6 @@ public interface UserRepository extends JpaRepository<org.ms.user_service.entity
   boolean existsByAddress(String address);
 
   Optional<org.ms.user_service.entity.User> findByAddress(String address);
+
+  List<org.ms.user_service.entity.User> findByAddressIn(Collection<String> addresses);
 }
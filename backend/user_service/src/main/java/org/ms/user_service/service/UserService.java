@@ -2,6 +2,9 @@ package org.ms.user_service.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +28,14 @@ public class UserService {
     return userMapper.toDto(userEntity);
   }
 
+  public Map<String, Long> getUidsByAddresses(Collection<String> addresses) {
+    Map<String, Long> uids = new HashMap<>();
+    for (org.ms.user_service.entity.User userEntity : userRepository.findByAddressIn(addresses)) {
+      uids.put(userEntity.getAddress(), userEntity.getUid());
+    }
+    return uids;
+  }
+
   public Optional<org.ms.user_service.dto.User> createOrGetUser(String address) {
     if (!userRepository.existsByAddress(address)) {
       org.ms.user_service.entity.User userEntity = org.ms.user_service.entity.User.builder()